@@ -0,0 +1,69 @@
+package liqui.config.logging;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import liqui.config.ApplicationProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.core.env.StandardEnvironment;
+
+/** Cost of {@link LoggingAspect#logAround} over a plain call to the same method. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingAspectBenchmark {
+
+    @Param({"1.0", "0.1"})
+    double sampleRate;
+
+    private Target direct;
+    private Target advised;
+    private long argument;
+
+    @Setup
+    public void setUp() {
+        direct = new Target();
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new Target());
+        proxyFactory.setProxyTargetClass(true);
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getLogging().setSampleRate(sampleRate);
+        proxyFactory.addAspect(
+                new LoggingAspect(
+                        new StandardEnvironment(),
+                        new PrometheusMeterRegistry(PrometheusConfig.DEFAULT),
+                        properties));
+        advised = proxyFactory.getProxy();
+        argument = System.nanoTime();
+    }
+
+    @Benchmark
+    public long direct() {
+        return direct.work(argument);
+    }
+
+    @Benchmark
+    public long advised() {
+        return advised.work(argument);
+    }
+
+    @Loggable
+    public static class Target {
+        public long work(long value) {
+            return Long.rotateLeft(value, 7) ^ value;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package liqui.exception;
+
+import java.util.concurrent.TimeUnit;
+import liqui.entities.Cliente;
+import liqui.web.controllers.ClienteController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.ProblemDetail;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorMappingBenchmark {
+
+    @Param({"1", "10"})
+    int violations;
+
+    private ErrorDetailProblemHandlingControllerAdvice advice;
+    private MethodArgumentNotValidException notValidException;
+    private BadRequestException badRequestException;
+
+    @Setup
+    public void setUp() throws Exception {
+        advice = new ErrorDetailProblemHandlingControllerAdvice();
+        BeanPropertyBindingResult bindingResult =
+                new BeanPropertyBindingResult(new Cliente(), "cliente");
+        for (int i = 0; i < violations; i++) {
+            bindingResult.addError(
+                    new FieldError(
+                            "cliente", "text", "", false, null, null, "Text cannot be empty"));
+        }
+        notValidException =
+                new MethodArgumentNotValidException(
+                        new MethodParameter(
+                                ClienteController.class.getMethod(
+                                        "createCliente", Cliente.class, String.class),
+                                0),
+                        bindingResult);
+        badRequestException =
+                new BadRequestException("Cursor pagination does not support sortBy=x");
+    }
+
+    @Benchmark
+    public ProblemDetail constraintViolation() {
+        return advice.onException(notValidException);
+    }
+
+    @Benchmark
+    public ProblemDetail badRequest() {
+        return advice.onException(badRequestException);
+    }
+}
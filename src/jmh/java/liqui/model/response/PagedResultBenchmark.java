@@ -0,0 +1,70 @@
+package liqui.model.response;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import liqui.entities.Cliente;
+import liqui.model.query.CountStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PagedResultBenchmark {
+
+    @Param({"10", "100"})
+    int pageSize;
+
+    private Page<Cliente> page;
+    private Slice<Cliente> slice;
+    private PagedResult<Cliente> pagedResult;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        List<Cliente> clientes =
+                LongStream.rangeClosed(1, pageSize)
+                        .mapToObj(id -> new Cliente(id, "cliente " + id, 0L))
+                        .toList();
+        PageRequest pageable = PageRequest.of(3, pageSize);
+        page = new PageImpl<>(clientes, pageable, 100_000);
+        slice = new SliceImpl<>(clientes, pageable, true);
+        pagedResult = new PagedResult<>(page);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public PagedResult<Cliente> fromPage() {
+        return new PagedResult<>(page);
+    }
+
+    @Benchmark
+    public PagedResult<Cliente> fromSliceWithEstimate() {
+        return new PagedResult<>(slice, 100_000L, CountStrategy.ESTIMATE);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(pagedResult);
+    }
+}
@@ -0,0 +1,102 @@
+package liqui.services;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import liqui.Application;
+import liqui.entities.Cliente;
+import liqui.model.query.CountStrategy;
+import liqui.model.query.FindClientesQuery;
+import liqui.model.response.CursorResult;
+import liqui.model.response.PagedResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/** End-to-end service calls, transactions and Hibernate included, on the embedded H2. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClienteServiceBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"20"})
+    int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private ClienteService clienteService;
+    private String secondPageCursor;
+
+    @Setup
+    public void setUp() {
+        context =
+                new SpringApplicationBuilder(Application.class)
+                        .web(WebApplicationType.NONE)
+                        .properties(
+                                "spring.jpa.show-sql=false",
+                                "logging.level.root=WARN",
+                                "logging.file.name=")
+                        .run();
+        clienteService = context.getBean(ClienteService.class);
+        clienteService.saveAll(
+                IntStream.range(0, ROWS).mapToObj(i -> new Cliente(null, "cliente " + i)).toList());
+        secondPageCursor =
+                clienteService.findClientesAfter(null, pageSize, "id", "asc").nextCursor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PagedResult<Cliente> findAllClientesExactCount() {
+        return clienteService.findAllClientes(
+                new FindClientesQuery(10, pageSize, "id", "asc", CountStrategy.EXACT));
+    }
+
+    @Benchmark
+    public PagedResult<Cliente> findAllClientesNoCount() {
+        return clienteService.findAllClientes(
+                new FindClientesQuery(10, pageSize, "id", "asc", CountStrategy.NONE));
+    }
+
+    @Benchmark
+    public CursorResult<Cliente> findClientesAfter() {
+        return clienteService.findClientesAfter(secondPageCursor, pageSize, "id", "asc");
+    }
+
+    @Benchmark
+    public Optional<Cliente> findClienteById() {
+        return clienteService.findClienteById(ThreadLocalRandom.current().nextLong(1, ROWS));
+    }
+
+    @Benchmark
+    public Cliente saveCliente() {
+        return clienteService.saveCliente(new Cliente(null, "benchmark"));
+    }
+
+    @Benchmark
+    public Object saveAll() {
+        return clienteService.saveAll(
+                List.of(new Cliente(null, "first"), new Cliente(null, "second")));
+    }
+}
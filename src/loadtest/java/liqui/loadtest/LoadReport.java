@@ -0,0 +1,35 @@
+package liqui.loadtest;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Outcome of a load test, written as JSON. Latencies are of the successful responses, in
+ * milliseconds from the time the request was due rather than sent, so that a saturated server or
+ * client cannot hide its queueing (coordinated omission). Throughput counts successful responses.
+ */
+record LoadReport(
+        WorkloadProfile profile,
+        String baseUrl,
+        Instant startedAt,
+        double seconds,
+        OperationReport total,
+        Map<String, OperationReport> operations) {
+
+    /**
+     * @param offeredRate requests per second that were due, dropped ones included
+     * @param dropped requests not sent at all, {@code maxInFlight} being reached
+     * @param errors failed requests by status code, or {@code timeout} and {@code io}; {@code
+     *     skipped} for deletes due while the test had no cliente of its own left to delete
+     */
+    record OperationReport(
+            long requests,
+            long succeeded,
+            double offeredRate,
+            double throughput,
+            long dropped,
+            Map<String, Long> errors,
+            Latency latency) {}
+
+    record Latency(double p50, double p90, double p99, double p999, double max, double mean) {}
+}
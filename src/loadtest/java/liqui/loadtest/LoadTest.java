@@ -0,0 +1,313 @@
+package liqui.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import liqui.loadtest.LoadReport.OperationReport;
+
+/**
+ * Open-model load generator for a running instance. Requests are due at the arrival times of the
+ * profile whether or not the previous ones completed, as the traffic of many independent users is;
+ * a due request goes out right away on an asynchronous client, or is dropped once {@code
+ * maxInFlight} are outstanding. Arrivals, operations and keys are all drawn on the scheduling thread
+ * from the seed of the profile, so two runs of a profile offer the same workload.
+ *
+ * <p>Usage: {@code LoadTest <profile> [<base-url> [<result-file> [key=value,...]]]}, the last
+ * argument overriding properties of the profile.
+ */
+public final class LoadTest {
+
+    private static final int BATCH_SIZE = 1_000;
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789 ";
+
+    private final WorkloadProfile profile;
+    private final URI baseUrl;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final SplittableRandom random;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final Queue<Long> created = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private List<Long> keys = List.of();
+
+    LoadTest(WorkloadProfile profile, URI baseUrl) {
+        this.profile = profile;
+        this.baseUrl = baseUrl;
+        this.client =
+                HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .connectTimeout(profile.timeout())
+                        .build();
+        this.objectMapper =
+                new ObjectMapper()
+                        .findAndRegisterModules()
+                        .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+                        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.random = new SplittableRandom(profile.seed());
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println(
+                    "Usage: LoadTest <profile> [<base-url> [<result-file> [key=value,...]]]");
+            System.exit(2);
+        }
+        Map<String, String> overrides = new HashMap<>();
+        if (args.length > 3) {
+            for (String setting : args[3].split(",")) {
+                int separator = setting.indexOf('=');
+                if (separator > 0) {
+                    overrides.put(
+                            setting.substring(0, separator).trim(),
+                            setting.substring(separator + 1).trim());
+                }
+            }
+        }
+        WorkloadProfile profile = WorkloadProfile.load(args[0], overrides);
+        URI baseUrl = URI.create(args.length > 1 ? args[1] : "http://localhost:8080");
+        Path resultFile =
+                Path.of(args.length > 2 ? args[2] : "target/loadtest-" + profile.name() + ".json");
+
+        LoadTest loadTest = new LoadTest(profile, baseUrl);
+        LoadReport report = loadTest.run();
+        String json =
+                loadTest.objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report);
+        if (resultFile.getParent() != null) {
+            Files.createDirectories(resultFile.getParent());
+        }
+        Files.writeString(resultFile, json);
+        System.out.println(json);
+        System.out.println("Written to " + resultFile.toAbsolutePath());
+    }
+
+    LoadReport run() throws IOException, InterruptedException {
+        keys = preload();
+        Instant startedAt = Instant.now();
+        long start = System.nanoTime();
+        long measureFrom = start + profile.warmup().toNanos();
+        long end = measureFrom + profile.duration().toNanos();
+        long meanGapNanos = (long) (TimeUnit.SECONDS.toNanos(1) / profile.rate());
+        int[] weights = cumulativeWeights();
+        ZipfianGenerator keyRanks =
+                keys.isEmpty() ? null : new ZipfianGenerator(keys.size(), profile.zipfExponent());
+        ZipfianGenerator pageRanks =
+                new ZipfianGenerator(
+                        Math.max(1, keys.size() / profile.pageSize()), profile.zipfExponent());
+
+        long due = start;
+        while (due < end) {
+            Operation operation = operation(weights);
+            HttpRequest request = request(operation, keyRanks, pageRanks);
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(operation, request, due, due >= measureFrom);
+            // exponential gaps: a Poisson process of the profile rate
+            due += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+        }
+        long drainUntil = System.nanoTime() + profile.timeout().toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainUntil) {
+            Thread.sleep(10);
+        }
+
+        double seconds = profile.duration().toNanos() / 1e9;
+        Map<String, OperationReport> operations = new LinkedHashMap<>();
+        stats.forEach(
+                (operation, operationStats) -> {
+                    if (profile.mix().get(operation) > 0) {
+                        operations.put(operation.key(), operationStats.report(seconds));
+                    }
+                });
+        return new LoadReport(
+                profile,
+                baseUrl.toString(),
+                startedAt,
+                seconds,
+                OperationStats.total(stats.values(), seconds),
+                operations);
+    }
+
+    /** Creates the clientes that reads and updates pick from, in random rank order. */
+    private List<Long> preload() throws IOException, InterruptedException {
+        List<Long> ids = new ArrayList<>(profile.keys());
+        while (ids.size() < profile.keys()) {
+            int count = Math.min(BATCH_SIZE, profile.keys() - ids.size());
+            List<Map<String, String>> batch = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                batch.add(Map.of("text", text()));
+            }
+            HttpResponse<String> response =
+                    client.send(
+                            json(HttpRequest.newBuilder(baseUrl.resolve("/batch")), batch).build(),
+                            HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException(
+                        "Preloading failed with " + response.statusCode() + ": " + response.body());
+            }
+            int before = ids.size();
+            for (JsonNode item : objectMapper.readTree(response.body()).path("items")) {
+                if ("CREATED".equals(item.path("status").asText())) {
+                    ids.add(item.get("id").asLong());
+                }
+            }
+            if (ids.size() == before) {
+                throw new IllegalStateException("Preloading created nothing: " + response.body());
+            }
+        }
+        // the hottest ranks on ids spread over the table, not on the first ones created
+        Collections.shuffle(ids, new Random(profile.seed()));
+        return ids;
+    }
+
+    private int[] cumulativeWeights() {
+        int[] weights = new int[Operation.values().length];
+        int sum = 0;
+        for (Operation operation : Operation.values()) {
+            sum += profile.mix().get(operation);
+            weights[operation.ordinal()] = sum;
+        }
+        return weights;
+    }
+
+    private Operation operation(int[] weights) {
+        int draw = random.nextInt(weights[weights.length - 1]);
+        for (Operation operation : Operation.values()) {
+            if (draw < weights[operation.ordinal()]) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    /** The request for {@code operation}, or null for a delete with nothing created to delete. */
+    private HttpRequest request(
+            Operation operation, ZipfianGenerator keyRanks, ZipfianGenerator pageRanks) {
+        HttpRequest.Builder builder = null;
+        switch (operation) {
+            case LIST -> builder =
+                    HttpRequest.newBuilder(
+                            baseUrl.resolve(
+                                    "/?pageNo="
+                                            + (pageRanks.next(random) - 1)
+                                            + "&pageSize="
+                                            + profile.pageSize()
+                                            + "&count=estimate"));
+            case GET -> builder = HttpRequest.newBuilder(clienteUri(key(keyRanks)));
+            case CREATE -> builder =
+                    json(HttpRequest.newBuilder(baseUrl.resolve("/")), Map.of("text", text()));
+            case UPDATE -> builder =
+                    HttpRequest.newBuilder(clienteUri(key(keyRanks)))
+                            .header("Content-Type", "application/json")
+                            .PUT(bodyOf(Map.of("text", text())));
+            case DELETE -> {
+                Long id = created.poll();
+                if (id != null) {
+                    builder = HttpRequest.newBuilder(clienteUri(id)).DELETE();
+                }
+            }
+        }
+        return builder == null ? null : builder.timeout(profile.timeout()).build();
+    }
+
+    private void send(Operation operation, HttpRequest request, long due, boolean measured) {
+        OperationStats operationStats = measured ? stats.get(operation) : new OperationStats();
+        operationStats.due();
+        if (request == null) {
+            operationStats.failed("skipped");
+            return;
+        }
+        if (inFlight.incrementAndGet() > profile.maxInFlight()) {
+            inFlight.decrementAndGet();
+            operationStats.dropped();
+            return;
+        }
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete(
+                        (response, error) -> {
+                            long latency = System.nanoTime() - due;
+                            inFlight.decrementAndGet();
+                            if (error != null) {
+                                Throwable cause =
+                                        error instanceof CompletionException
+                                                ? error.getCause()
+                                                : error;
+                                operationStats.failed(
+                                        cause instanceof HttpTimeoutException ? "timeout" : "io");
+                            } else if (response.statusCode() >= 400) {
+                                operationStats.failed(Integer.toString(response.statusCode()));
+                            } else {
+                                operationStats.succeeded(latency);
+                                if (operation == Operation.CREATE) {
+                                    remember(response.body());
+                                }
+                            }
+                        });
+    }
+
+    private void remember(String body) {
+        try {
+            created.add(objectMapper.readTree(body).get("id").asLong());
+        } catch (IOException | NullPointerException e) {
+            // a create without an id in its response cannot be deleted later, nothing else
+        }
+    }
+
+    private long key(ZipfianGenerator keyRanks) {
+        return keys.get((int) keyRanks.next(random) - 1);
+    }
+
+    private URI clienteUri(long id) {
+        return baseUrl.resolve("/" + id);
+    }
+
+    private String text() {
+        char[] text = new char[profile.textLength()];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        }
+        // never all blanks
+        text[0] = 'c';
+        return new String(text);
+    }
+
+    private HttpRequest.Builder json(HttpRequest.Builder builder, Object body) {
+        return builder.header("Content-Type", "application/json").POST(bodyOf(body));
+    }
+
+    private HttpRequest.BodyPublisher bodyOf(Object body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package liqui.loadtest;
+
+/** The requests a workload mixes, by the name they have in profiles and reports. */
+enum Operation {
+    LIST,
+    GET,
+    CREATE,
+    UPDATE,
+    DELETE;
+
+    String key() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,91 @@
+package liqui.loadtest;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import liqui.loadtest.LoadReport.Latency;
+import liqui.loadtest.LoadReport.OperationReport;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/** Counts and latencies of one operation, recorded from the threads that complete requests. */
+final class OperationStats {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    void due() {
+        requests.increment();
+    }
+
+    void dropped() {
+        dropped.increment();
+    }
+
+    void succeeded(long latencyNanos) {
+        latencies.recordValue(
+                Math.min(MAX_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+    }
+
+    void failed(String reason) {
+        errors.computeIfAbsent(reason, key -> new LongAdder()).increment();
+    }
+
+    OperationReport report(double seconds) {
+        return report(latencies, requests.sum(), dropped.sum(), errors(), seconds);
+    }
+
+    /** The report of all of {@code stats} together. */
+    static OperationReport total(Iterable<OperationStats> stats, double seconds) {
+        Histogram latencies = new Histogram(MAX_LATENCY_MICROS, 3);
+        long requests = 0;
+        long dropped = 0;
+        Map<String, Long> errors = new TreeMap<>();
+        for (OperationStats operation : stats) {
+            latencies.add(operation.latencies);
+            requests += operation.requests.sum();
+            dropped += operation.dropped.sum();
+            operation.errors().forEach((reason, count) -> errors.merge(reason, count, Long::sum));
+        }
+        return report(latencies, requests, dropped, errors, seconds);
+    }
+
+    private Map<String, Long> errors() {
+        Map<String, Long> counts = new TreeMap<>();
+        errors.forEach((reason, count) -> counts.put(reason, count.sum()));
+        return counts;
+    }
+
+    private static OperationReport report(
+            Histogram latencies,
+            long requests,
+            long dropped,
+            Map<String, Long> errors,
+            double seconds) {
+        long succeeded = latencies.getTotalCount();
+        return new OperationReport(
+                requests,
+                succeeded,
+                requests / seconds,
+                succeeded / seconds,
+                dropped,
+                errors,
+                new Latency(
+                        millis(latencies.getValueAtPercentile(50)),
+                        millis(latencies.getValueAtPercentile(90)),
+                        millis(latencies.getValueAtPercentile(99)),
+                        millis(latencies.getValueAtPercentile(99.9)),
+                        millis(latencies.getMaxValue()),
+                        millis(latencies.getMean())));
+    }
+
+    private static double millis(double micros) {
+        return Math.round(micros) / 1000d;
+    }
+}
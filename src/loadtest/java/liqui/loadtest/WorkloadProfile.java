@@ -0,0 +1,101 @@
+package liqui.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+import org.springframework.boot.convert.DurationStyle;
+
+/**
+ * What a load test sends: {@code rate} requests per second on average, as a Poisson process,
+ * through {@code warmup} and then {@code duration}, each request an operation drawn by the {@code
+ * mix.*} weights. Reads and updates pick among {@code keys} clientes created beforehand, by a
+ * Zipfian rank of exponent {@code zipfExponent}; deletes take the clientes the test created. The
+ * same {@code seed} gives the same sequence of arrivals, operations and keys.
+ *
+ * <p>Profiles are properties files, either on the classpath as {@code profiles/<name>.properties}
+ * or at a path; the defaults below fill in what they leave out.
+ */
+record WorkloadProfile(
+        String name,
+        double rate,
+        Duration duration,
+        Duration warmup,
+        Map<Operation, Integer> mix,
+        int keys,
+        double zipfExponent,
+        int pageSize,
+        int textLength,
+        int maxInFlight,
+        Duration timeout,
+        long seed) {
+
+    WorkloadProfile {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("rate must be above 0");
+        }
+        if (textLength < 1 || pageSize < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException(
+                    "textLength, pageSize and maxInFlight must be above 0");
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("mix needs at least one operation");
+        }
+        boolean readsKeys =
+                mix.get(Operation.LIST) > 0
+                        || mix.get(Operation.GET) > 0
+                        || mix.get(Operation.UPDATE) > 0;
+        if (readsKeys && keys < 1) {
+            throw new IllegalArgumentException("list, get and update need keys above 0");
+        }
+    }
+
+    /** Loads {@code profile}, then applies {@code overrides} on top, with the same keys. */
+    static WorkloadProfile load(String profile, Map<String, String> overrides) {
+        Properties properties = new Properties();
+        Path path = Path.of(profile);
+        try (InputStream in =
+                Files.isRegularFile(path)
+                        ? Files.newInputStream(path)
+                        : WorkloadProfile.class.getResourceAsStream(
+                                "/profiles/" + profile + ".properties")) {
+            if (in == null) {
+                throw new IllegalArgumentException("No such profile: " + profile);
+            }
+            properties.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read profile " + profile, e);
+        }
+        properties.putAll(overrides);
+
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            mix.put(
+                    operation,
+                    Integer.parseInt(properties.getProperty("mix." + operation.key(), "0")));
+        }
+        String name = path.getFileName().toString().replaceFirst("\\.properties$", "");
+        return new WorkloadProfile(
+                name,
+                Double.parseDouble(properties.getProperty("rate", "100")),
+                duration(properties, "duration", "1m"),
+                duration(properties, "warmup", "10s"),
+                mix,
+                Integer.parseInt(properties.getProperty("keys", "10000")),
+                Double.parseDouble(properties.getProperty("zipfExponent", "0.99")),
+                Integer.parseInt(properties.getProperty("pageSize", "20")),
+                Integer.parseInt(properties.getProperty("textLength", "64")),
+                Integer.parseInt(properties.getProperty("maxInFlight", "1000")),
+                duration(properties, "timeout", "10s"),
+                Long.parseLong(properties.getProperty("seed", "42")));
+    }
+
+    private static Duration duration(Properties properties, String key, String defaultValue) {
+        return DurationStyle.detectAndParse(properties.getProperty(key, defaultValue));
+    }
+}
@@ -0,0 +1,65 @@
+package liqui.loadtest;
+
+import java.util.SplittableRandom;
+
+/**
+ * Ranks from 1 to {@code n}, rank {@code k} with a probability proportional to {@code 1 / k^s}, by
+ * rejection-inversion (Hörmann and Derflinger, 1996): constant time and memory whatever {@code n},
+ * for any exponent above 0. An exponent around 1 gives the usual web key skew, where the few hottest
+ * keys take most of the traffic.
+ */
+final class ZipfianGenerator {
+
+    private final long n;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    ZipfianGenerator(long n, double exponent) {
+        if (n < 1 || exponent <= 0) {
+            throw new IllegalArgumentException("Needs n >= 1 and an exponent above 0");
+        }
+        this.n = n;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    long next(SplittableRandom random) {
+        while (true) {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            long k = Math.max(1, Math.min(n, (long) (x + 0.5)));
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    /** Integral of {@link #h} from 1, shifted so that it is defined for an exponent of 1 too. */
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return expm1OverX((1 - exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = Math.max(-1, x * (1 - exponent));
+        return Math.exp(log1pOverX(t) * x);
+    }
+
+    /** {@code log(1 + x) / x}, accurate near 0. */
+    private static double log1pOverX(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1 / 3d - 0.25 * x));
+    }
+
+    /** {@code (exp(x) - 1) / x}, accurate near 0. */
+    private static double expm1OverX(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+    }
+}
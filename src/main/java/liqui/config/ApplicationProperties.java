@@ -1,12 +1,36 @@
 package liqui.config;
 
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import liqui.exception.BadRequestException;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 @Data
 @ConfigurationProperties("application")
 public class ApplicationProperties {
     private Cors cors = new Cors();
+    private Pagination pagination = new Pagination();
+    private Export export = new Export();
+    private Batch batch = new Batch();
+    private BulkImport bulkImport = new BulkImport();
+    private Cache cache = new Cache();
+    private Datasource datasource = new Datasource();
+    private Threads threads = new Threads();
+    private Logging logging = new Logging();
+    private WriteBehind writeBehind = new WriteBehind();
+    private Changes changes = new Changes();
+    private Outbox outbox = new Outbox();
+    private JsonCache jsonCache = new JsonCache();
+    private RateLimit rateLimit = new RateLimit();
+    private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+    private Coalescing coalescing = new Coalescing();
+    private Startup startup = new Startup();
+    private Partitioning partitioning = new Partitioning();
 
     @Data
     public static class Cors {
@@ -16,4 +40,363 @@ public class ApplicationProperties {
         private String allowedOriginPatterns = "*";
         private boolean allowCredentials = true;
     }
+
+    @Data
+    public static class Pagination {
+        /** How long an exact count stands in for the planner estimate when there is none. */
+        private Duration countCacheTtl = Duration.ofMinutes(1);
+
+        /** Largest page a listing or search returns, bigger {@code pageSize} values are capped. */
+        private int maxPageSize = 100;
+
+        public int capPageSize(int pageSize) {
+            if (pageSize < 1) {
+                throw new BadRequestException("pageSize must be at least 1");
+            }
+            return Math.min(pageSize, maxPageSize);
+        }
+    }
+
+    @Data
+    public static class Export {
+        /** Rows the JDBC driver fetches per round trip. */
+        private int fetchSize = 1000;
+
+        /** The persistence context is cleared every this many exported rows. */
+        private int clearInterval = 1000;
+    }
+
+    @Data
+    public static class Batch {
+        /** Largest number of clientes accepted by one batch request. */
+        private int maxItems = 10_000;
+
+        /** The persistence context is flushed and cleared every this many clientes. */
+        private int chunkSize = 500;
+
+        /** New clientes are written with PostgreSQL COPY from this many on; 0 disables COPY. */
+        private int copyThreshold = 0;
+    }
+
+    @Data
+    public static class BulkImport {
+        /** Parsed rows handed to the writer, and committed, together. */
+        private int chunkSize = 1000;
+
+        /** Parsed chunks waiting for the writer before parsing blocks. */
+        private int queueCapacity = 4;
+
+        /** Imports writing to the database at the same time. */
+        private int maxConcurrent = 2;
+
+        /** Finished imports whose status stays available. */
+        private int retainedJobs = 100;
+
+        /** Row errors kept in the status of an import. */
+        private int maxErrors = 100;
+    }
+
+    @Data
+    public static class Cache {
+        /** Clientes kept by the read-through cache of findClienteById. */
+        private long maximumSize = 10_000;
+
+        /** Lifetime of a cached cliente. */
+        private Duration ttl = Duration.ofMinutes(10);
+
+        /** Lifetime of a cached miss, so that 404s do not keep hitting the database. */
+        private Duration negativeTtl = Duration.ofSeconds(30);
+
+        private Coherence coherence = new Coherence();
+
+        /** Invalidation of the caches of the other replicas through PostgreSQL LISTEN/NOTIFY. */
+        @Data
+        public static class Coherence {
+            private boolean enabled = true;
+            private String channel = "clientes_changed";
+
+            /** Wait before reconnecting the listener after its connection broke. */
+            private Duration reconnectDelay = Duration.ofSeconds(5);
+        }
+    }
+
+    /**
+     * Maintenance of the range partitions of {@code clientes} on PostgreSQL, by id, see {@code
+     * ClientePartitionMaintenance}.
+     */
+    @Data
+    public static class Partitioning {
+        /** Without it, inserts fail once the ids pass the last partition created. */
+        private boolean enabled = true;
+
+        /** Ids per partition created from now on; existing partitions keep their bounds. */
+        private long partitionSize = 1_000_000;
+
+        /** Partitions kept created beyond the ones holding the ids handed out so far. */
+        private int ahead = 4;
+
+        private Duration checkInterval = Duration.ofMinutes(10);
+
+        private Archive archive = new Archive();
+
+        /**
+         * Archival of cold partitions: detached, written to a gzipped CSV file and dropped. Their
+         * clientes are gone from the API.
+         */
+        @Data
+        public static class Archive {
+            private boolean enabled = false;
+
+            private Path directory = Path.of("data", "archive");
+
+            /** Full partitions, the newest ones, that stay attached. */
+            private int retain = 8;
+        }
+    }
+
+    @Data
+    public static class Startup {
+        /**
+         * Skip Liquibase and Hibernate's schema validation when the changelog and the entities are
+         * those of the last migration, see {@code SchemaFingerprint}.
+         */
+        private boolean skipUnchangedSchema = false;
+
+        /** Exit once ready, for the training run that writes the class data sharing archive. */
+        private boolean exitOnReady = false;
+    }
+
+    /**
+     * Sharing of one execution between concurrent identical reads, see {@code CoalescingAspect}.
+     */
+    @Data
+    public static class Coalescing {
+        private boolean enabled = true;
+
+        /**
+         * How long a completed result is still handed out to new identical calls; zero, only to the
+         * ones that arrived while it was running.
+         */
+        private Duration window = Duration.ZERO;
+
+        /** Results kept for the window. */
+        private long maximumSize = 1_000;
+    }
+
+    /** Serialized JSON of clientes by id and version, written into responses as is. */
+    @Data
+    public static class JsonCache {
+        private boolean enabled = false;
+
+        /** Bound on the cached JSON, roughly its size in memory. */
+        private DataSize maximumSize = DataSize.ofMegabytes(64);
+    }
+
+    /**
+     * Token bucket per client in front of the API, a client being the value of {@code
+     * api-key-header} or else the remote address. Beyond its bucket a request gets a 429.
+     */
+    @Data
+    public static class RateLimit {
+        private boolean enabled = false;
+
+        private String apiKeyHeader = "X-API-Key";
+
+        /** Limit of the clients without one of their own in {@code api-keys}. */
+        private Limit defaults = new Limit();
+
+        /**
+         * Limits by API key; a key not listed here is ignored, its requests count against the
+         * address of the client.
+         */
+        private Map<String, Limit> apiKeys = new HashMap<>();
+
+        /** Buckets kept; the least used ones are evicted beyond that, and start over full. */
+        private long maxClients = 100_000;
+
+        /** Idle time after which a bucket is dropped, it would be full again anyway. */
+        private Duration idleTimeout = Duration.ofMinutes(10);
+
+        @Data
+        public static class Limit {
+            /** Requests a client can make at once after being idle. */
+            private int burst = 100;
+
+            /** Requests per second a client can sustain. */
+            private double rate = 50;
+        }
+    }
+
+    /**
+     * Adaptive cap on the requests handled at once: it grows by one per window of requests served
+     * in about the usual time and shrinks by {@code backoff} when the recent ones get slower than
+     * {@code tolerance} times that. Beyond it a request gets a 503.
+     */
+    @Data
+    public static class ConcurrencyLimit {
+        private boolean enabled = false;
+
+        private int initialLimit = 20;
+        private int minLimit = 4;
+        private int maxLimit = 200;
+
+        /** Recent latency, relative to the usual one, from which the limit shrinks. */
+        private double tolerance = 2.0;
+
+        /** Factor applied to the limit when it shrinks. */
+        private double backoff = 0.9;
+
+        /** {@code Retry-After} of the 503. */
+        private Duration retryDelay = Duration.ofSeconds(1);
+    }
+
+    /** Latency recording of {@code @Loggable} methods by {@code LoggingAspect}. */
+    @Data
+    public static class Logging {
+        /**
+         * Fraction of calls that are timed, between 0 and 1. Below 1, the count and rate of {@code
+         * method.timed} are those of the sampled calls: divided by this, they estimate all calls.
+         * Latencies and their percentiles are unaffected.
+         */
+        private double sampleRate = 1.0;
+
+        /** Calls taking longer are logged at WARN, with their arguments redacted. */
+        private Duration slowThreshold = Duration.ofMillis(500);
+
+        /** Percentiles computed in the application and exposed through actuator metrics. */
+        private double[] percentiles = {0.5, 0.95, 0.99};
+
+        /** Publish histogram buckets, for percentiles aggregated by Prometheus. */
+        private boolean percentileHistogram = true;
+    }
+
+    /**
+     * Asynchronous creates, for {@code POST} with {@code Prefer: respond-async}: acknowledged once
+     * appended to a local write-ahead log and inserted in batches by a background writer.
+     */
+    @Data
+    public static class WriteBehind {
+        private boolean enabled = false;
+
+        /** Clientes waiting to be inserted; beyond that creates are refused with 503. */
+        private int capacity = 10_000;
+
+        /** Largest insert batch of the writer. */
+        private int batchSize = 500;
+
+        /** Directory of the write-ahead log segments, one process per directory. */
+        private Path walDirectory = Path.of("data", "wal");
+
+        /** Size past which the write-ahead log starts a new segment. */
+        private DataSize segmentSize = DataSize.ofMegabytes(16);
+
+        private Fsync fsync = Fsync.ALWAYS;
+
+        /** Period of the fsync under {@code INTERVAL}. */
+        private Duration fsyncInterval = Duration.ofMillis(100);
+
+        /** Pause before the writer retries a failed batch. */
+        private Duration retryDelay = Duration.ofSeconds(1);
+
+        public enum Fsync {
+            /** Before acknowledging each create: nothing acknowledged is lost. */
+            ALWAYS,
+            /** Every {@code fsync-interval}: a crash loses at most that much. */
+            INTERVAL,
+            /** Left to the operating system: only a process crash is survived. */
+            NEVER
+        }
+    }
+
+    /** The {@code GET /changes} event stream. */
+    @Data
+    public static class Changes {
+        /**
+         * Events kept for resuming with {@code Last-Event-ID}; a subscriber that falls this far
+         * behind is disconnected.
+         */
+        private int bufferSize = 10_000;
+
+        /** Open streams; beyond that new ones are refused with 503. */
+        private int maxSubscribers = 10_000;
+
+        /** Lifetime of a stream, after which the client reconnects with {@code Last-Event-ID}. */
+        private Duration timeout = Duration.ofMinutes(30);
+
+        /** Period of the comment that keeps idle streams open and finds the dropped ones. */
+        private Duration heartbeat = Duration.ofSeconds(15);
+
+        /** Threads writing to the streams; an idle stream holds none. */
+        private int senders = 4;
+
+        /** {@code Retry-After} of the 503 once {@code max-subscribers} is reached. */
+        private Duration retryDelay = Duration.ofSeconds(5);
+    }
+
+    /**
+     * Transactional outbox: every cliente write also inserts its events into the {@code outbox}
+     * table, which the relay delivers to the configured sinks and then deletes.
+     */
+    @Data
+    public static class Outbox {
+        private boolean enabled = false;
+
+        /** Events claimed and delivered per relay transaction. */
+        private int batchSize = 500;
+
+        /** Pause of the relay once the outbox is drained; a local commit ends it early. */
+        private Duration pollInterval = Duration.ofSeconds(1);
+
+        /** Pause before a batch that failed to deliver is claimed again. */
+        private Duration retryDelay = Duration.ofSeconds(5);
+
+        private LogFile logFile = new LogFile();
+        private Webhook webhook = new Webhook();
+
+        @Data
+        public static class LogFile {
+            /** File the events are appended to, one JSON object per line; none, no sink. */
+            private Path path;
+        }
+
+        @Data
+        public static class Webhook {
+            /** Receives every batch as a JSON array in a POST; none, no sink. */
+            private URI url;
+
+            private Duration timeout = Duration.ofSeconds(10);
+        }
+    }
+
+    @Data
+    public static class Threads {
+        /** Serve requests and async work on virtual threads; requires Java 21. */
+        private boolean virtual = false;
+    }
+
+    @Data
+    public static class Datasource {
+        private Replica replica = new Replica();
+        private Gate gate = new Gate();
+
+        /**
+         * Read replica serving read-only transactions; without a url every transaction goes to the
+         * primary. Pool settings go under {@code application.datasource.replica.hikari}.
+         */
+        @Data
+        public static class Replica {
+            private String url;
+            private String username;
+            private String password;
+        }
+
+        /**
+         * Semaphore in front of each pool when running on virtual threads, admitting as many
+         * callers as the pool has connections.
+         */
+        @Data
+        public static class Gate {
+            private Duration acquireTimeout = Duration.ofSeconds(30);
+        }
+    }
 }
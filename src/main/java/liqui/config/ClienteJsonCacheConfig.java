@@ -0,0 +1,129 @@
+package liqui.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import liqui.entities.Cliente;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches the JSON of every serialized cliente by id and version, a pair that never stands for two
+ * different states, and splices it into later responses as raw UTF-8 instead of serializing the
+ * cliente again. Registered as a Jackson module of the application {@code ObjectMapper} when {@code
+ * application.json-cache.enabled=true}. Statistics are the {@code cache.*} meters tagged {@code
+ * cache=cliente-json}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "application.json-cache.enabled", havingValue = "true")
+public class ClienteJsonCacheConfig {
+
+    /** Writer attribute of the serializations that must not fill the cache, like full exports. */
+    public static final String BYPASS = ClienteJsonCacheConfig.class.getName() + ".bypass";
+
+    static final String CACHE_NAME = "cliente-json";
+
+    @Bean
+    public Module clienteJsonCacheModule(
+            ApplicationProperties properties, MeterRegistry meterRegistry) {
+        Cache<Key, SerializedString> cache =
+                Caffeine.newBuilder()
+                        .maximumWeight(properties.getJsonCache().getMaximumSize().toBytes())
+                        // Latin-1 text takes a byte per char as a String and as UTF-8
+                        .<Key, SerializedString>weigher((key, json) -> 2 * json.charLength())
+                        .recordStats()
+                        .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        return module(cache);
+    }
+
+    static Module module(Cache<Key, SerializedString> cache) {
+        SimpleModule module = new SimpleModule(CACHE_NAME);
+        module.setSerializerModifier(
+                new BeanSerializerModifier() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public JsonSerializer<?> modifySerializer(
+                            SerializationConfig config,
+                            BeanDescription description,
+                            JsonSerializer<?> serializer) {
+                        return description.getBeanClass() == Cliente.class
+                                ? new CachingClienteSerializer(
+                                        (JsonSerializer<Object>) serializer, cache)
+                                : serializer;
+                    }
+                });
+        return module;
+    }
+
+    record Key(long id, long version) {}
+
+    /** Writes the cached JSON, serializing with the regular bean serializer on a miss. */
+    static final class CachingClienteSerializer extends StdSerializer<Object>
+            implements ResolvableSerializer {
+
+        private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+        private final JsonSerializer<Object> delegate;
+        private final Cache<Key, SerializedString> cache;
+
+        CachingClienteSerializer(
+                JsonSerializer<Object> delegate, Cache<Key, SerializedString> cache) {
+            super(Object.class);
+            this.delegate = delegate;
+            this.cache = cache;
+        }
+
+        @Override
+        public void resolve(SerializerProvider provider) throws JsonMappingException {
+            if (delegate instanceof ResolvableSerializer resolvable) {
+                resolvable.resolve(provider);
+            }
+        }
+
+        @Override
+        public void serialize(Object value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            Cliente cliente = (Cliente) value;
+            if (cliente.getId() == null
+                    || cliente.getVersion() == null
+                    || provider.getAttribute(BYPASS) != null) {
+                delegate.serialize(value, generator, provider);
+                return;
+            }
+            SerializedString json =
+                    cache.get(
+                            new Key(cliente.getId(), cliente.getVersion()),
+                            key -> serializeAlone(cliente, provider));
+            generator.writeRawValue(json);
+        }
+
+        private SerializedString serializeAlone(Cliente cliente, SerializerProvider provider) {
+            StringWriter json = new StringWriter();
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+                delegate.serialize(cliente, generator, provider);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new SerializedString(json.toString());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package liqui.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Admits at most {@code permits} borrowed connections, queueing the other callers in FIFO order on
+ * a fair semaphore. With virtual threads there is no request thread pool left to cap how many
+ * callers pile up on the connection pool; this puts the cap back where the scarce resource is.
+ * Waiting callers are published as {@code datasource.gate.waiting}, tagged with the pool name.
+ */
+public class ConnectionGateDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final Duration acquireTimeout;
+
+    public ConnectionGateDataSource(
+            DataSource target,
+            String poolName,
+            int permits,
+            Duration acquireTimeout,
+            MeterRegistry meterRegistry) {
+        super(target);
+        this.permits = new Semaphore(permits, true);
+        this.acquireTimeout = acquireTimeout;
+        Gauge.builder("datasource.gate.waiting", this.permits, Semaphore::getQueueLength)
+                .description("Callers waiting for a connection permit")
+                .tag("pool", poolName)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return gated(obtainTargetDataSource().getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return gated(obtainTargetDataSource().getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "No connection permit available after " + acquireTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted waiting for a permit", e);
+        }
+    }
+
+    /** Gives the permit back on the first close, whichever way the connection ends up closed. */
+    private Connection gated(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection)
+                Proxy.newProxyInstance(
+                        ConnectionGateDataSource.class.getClassLoader(),
+                        new Class<?>[] {Connection.class},
+                        (proxy, method, args) ->
+                                switch (method.getName()) {
+                                    case "equals" -> proxy == args[0];
+                                    case "hashCode" -> System.identityHashCode(proxy);
+                                    case "toString" -> "Gated " + connection;
+                                    default -> {
+                                        try {
+                                            yield method.invoke(connection, args);
+                                        } catch (InvocationTargetException e) {
+                                            throw e.getTargetException();
+                                        } finally {
+                                            if ("close".equals(method.getName())
+                                                    && released.compareAndSet(false, true)) {
+                                                permits.release();
+                                            }
+                                        }
+                                    }
+                                });
+    }
+}
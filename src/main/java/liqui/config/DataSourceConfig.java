@@ -0,0 +1,80 @@
+package liqui.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Primary pool from {@code spring.datasource.*}, optional read replica pool from {@code
+ * application.datasource.replica.*}, and the routing DataSource used by JPA and everything else.
+ */
+@Configuration(proxyBeanMethods = false)
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource =
+                dataSourceProperties
+                        .initializeDataSourceBuilder()
+                        .type(HikariDataSource.class)
+                        .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnProperty("application.datasource.replica.url")
+    @ConfigurationProperties("application.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(ApplicationProperties properties) {
+        ApplicationProperties.Datasource.Replica replica = properties.getDatasource().getReplica();
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(replica.getUrl());
+        dataSource.setUsername(replica.getUsername());
+        dataSource.setPassword(replica.getPassword());
+        dataSource.setReadOnly(true);
+        // hibernate.connection.provider_disables_autocommit relies on it, as on the primary
+        dataSource.setAutoCommit(false);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+            @Qualifier("replicaDataSource") ObjectProvider<HikariDataSource> replicaDataSource,
+            ApplicationProperties properties,
+            MeterRegistry meterRegistry) {
+        HikariDataSource replica = replicaDataSource.getIfAvailable();
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(
+                        gate(primaryDataSource, properties, meterRegistry),
+                        replica == null ? null : gate(replica, properties, meterRegistry),
+                        meterRegistry));
+    }
+
+    /** Virtual threads are not capped by a request thread pool, so the pools get a gate. */
+    private static DataSource gate(
+            HikariDataSource pool, ApplicationProperties properties, MeterRegistry meterRegistry) {
+        if (!properties.getThreads().isVirtual()) {
+            return pool;
+        }
+        return new ConnectionGateDataSource(
+                pool,
+                pool.getPoolName(),
+                // unset until the pool starts, when Hikari applies its default of 10
+                pool.getMaximumPoolSize() > 0 ? pool.getMaximumPoolSize() : 10,
+                properties.getDatasource().getGate().getAcquireTimeout(),
+                meterRegistry);
+    }
+}
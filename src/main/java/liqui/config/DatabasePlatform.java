@@ -0,0 +1,41 @@
+package liqui.config;
+
+import java.sql.DatabaseMetaData;
+import javax.sql.DataSource;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+/** Database vendor behind the application DataSource, for vendor specific fast paths. */
+@Component
+public class DatabasePlatform {
+
+    private final DataSource dataSource;
+
+    private volatile DatabaseDriver driver;
+
+    public DatabasePlatform(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public DatabaseDriver getDriver() {
+        DatabaseDriver result = driver;
+        if (result == null) {
+            try {
+                String productName =
+                        JdbcUtils.extractDatabaseMetaData(
+                                dataSource, DatabaseMetaData::getDatabaseProductName);
+                result = DatabaseDriver.fromProductName(productName);
+            } catch (MetaDataAccessException e) {
+                result = DatabaseDriver.UNKNOWN;
+            }
+            driver = result;
+        }
+        return result;
+    }
+
+    public boolean isPostgreSql() {
+        return getDriver() == DatabaseDriver.POSTGRESQL;
+    }
+}
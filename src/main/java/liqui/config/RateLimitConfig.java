@@ -0,0 +1,23 @@
+package liqui.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import liqui.web.interceptors.ClienteRateLimitInterceptor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The {@link ClienteRateLimitInterceptor}, when {@code application.rate-limit.enabled} or {@code
+ * application.concurrency-limit.enabled}; {@link WebMvcConfig} registers it.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnExpression(
+        "${application.rate-limit.enabled:false} or ${application.concurrency-limit.enabled:false}")
+public class RateLimitConfig {
+
+    @Bean
+    public ClienteRateLimitInterceptor clienteRateLimitInterceptor(
+            ApplicationProperties properties, MeterRegistry meterRegistry) {
+        return new ClienteRateLimitInterceptor(properties, meterRegistry);
+    }
+}
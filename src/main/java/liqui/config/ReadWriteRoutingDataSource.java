@@ -0,0 +1,69 @@
+package liqui.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Hands out replica connections to read-only transactions and primary connections to everything
+ * else. When there is no replica, or it cannot provide a connection, reads fall back to the
+ * primary. Each decision increments {@code datasource.routing}, tagged with the chosen target.
+ *
+ * <p>The read-only flag is only set once the transaction has begun, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}.
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    static final String ROUTING_METER = "datasource.routing";
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final Counter primaryCounter;
+    private final Counter replicaCounter;
+    private final Counter fallbackCounter;
+
+    public ReadWriteRoutingDataSource(
+            DataSource primary, DataSource replica, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.primaryCounter = counter(meterRegistry, "primary");
+        this.replicaCounter = counter(meterRegistry, "replica");
+        this.fallbackCounter = counter(meterRegistry, "fallback");
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (replica == null || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryCounter.increment();
+            return primary.getConnection();
+        }
+        try {
+            Connection connection = replica.getConnection();
+            replicaCounter.increment();
+            return connection;
+        } catch (SQLException e) {
+            log.warn("Replica unavailable, reading from the primary: {}", e.getMessage());
+            fallbackCounter.increment();
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Credentials are configured per pool");
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String target) {
+        return Counter.builder(ROUTING_METER)
+                .description("Connections handed out by target pool")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,180 @@
+package liqui.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.sql.DataSource;
+import liqui.entities.Cliente;
+import liquibase.integration.spring.SpringLiquibase;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Lets a start skip Liquibase and Hibernate's schema validation when {@code
+ * application.startup.skip-unchanged-schema=true} and the schema inputs, the changelog and the
+ * entity classes, hash to the fingerprint recorded after the last migration. On an unchanged schema
+ * both only confirm that nothing changed, at the cost of a changelog parse, the changelog lock and
+ * a round of metadata queries. The fingerprint lives in the migrated database itself, so a fresh or
+ * restored database, which lacks it or holds another one, is migrated as usual.
+ *
+ * <p>The switch is read from the environment rather than through a condition, which the AOT build
+ * would evaluate once and for all at build time.
+ */
+@Slf4j
+public class SchemaFingerprint
+        implements BeanPostProcessor, HibernatePropertiesCustomizer, EnvironmentAware {
+
+    static final String ENABLED_PROPERTY = "application.startup.skip-unchanged-schema";
+
+    private static final int ROW_ID = 1;
+
+    private boolean enabled;
+    private String fingerprint;
+    private boolean unchanged;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.enabled = environment.getProperty(ENABLED_PROPERTY, Boolean.class, false);
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (enabled && bean instanceof SpringLiquibase liquibase) {
+            fingerprint = compute(liquibase.getChangeLog());
+            if (fingerprint.equals(read(liquibase.getDataSource()))) {
+                log.info("Schema unchanged since the last migration, skipping Liquibase");
+                unchanged = true;
+                liquibase.setShouldRun(false);
+            }
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (fingerprint != null && !unchanged && bean instanceof SpringLiquibase liquibase) {
+            write(liquibase.getDataSource(), fingerprint);
+        }
+        return bean;
+    }
+
+    /** Runs once Liquibase did or did not, the entity manager factory depends on it. */
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        if (unchanged) {
+            hibernateProperties.put("hibernate.hbm2ddl.auto", "none");
+        }
+    }
+
+    /** SHA-256 over every file next to and below the changelog, and over the entity classes. */
+    static String compute(String changeLog) {
+        String changeLogDirectory =
+                StringUtils.cleanPath(changeLog.replaceFirst("^classpath\\*?:/?", ""));
+        changeLogDirectory = changeLogDirectory.substring(0, changeLogDirectory.lastIndexOf('/'));
+        String entities = ClassUtils.classPackageAsResourcePath(Cliente.class);
+        Map<String, Resource> inputs = new TreeMap<>();
+        collect("classpath*:" + changeLogDirectory + "/**/*", changeLogDirectory, inputs);
+        collect("classpath*:" + entities + "/**/*.class", entities, inputs);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Map.Entry<String, Resource> input : inputs.entrySet()) {
+                digest.update(input.getKey().getBytes(StandardCharsets.UTF_8));
+                try (InputStream in = input.getValue().getInputStream()) {
+                    digest.update(in.readAllBytes());
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the schema inputs", e);
+        }
+    }
+
+    /**
+     * Readable files of {@code pattern} by their path from {@code base}, alike in jars and dirs.
+     */
+    private static void collect(String pattern, String base, Map<String, Resource> inputs) {
+        try {
+            for (Resource resource :
+                    new PathMatchingResourcePatternResolver().getResources(pattern)) {
+                if (resource.isReadable()) {
+                    String url = resource.getURL().toString();
+                    inputs.put(url.substring(url.lastIndexOf(base + "/")), resource);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list " + pattern, e);
+        }
+    }
+
+    /** The recorded fingerprint, null when there is none or no table for it yet. */
+    private static String read(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement statement =
+                    connection.prepareStatement(
+                            "select fingerprint from schema_fingerprint where id = ?")) {
+                statement.setInt(1, ROW_ID);
+                try (ResultSet rows = statement.executeQuery()) {
+                    return rows.next() ? rows.getString(1) : null;
+                }
+            } finally {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                }
+            }
+        } catch (SQLException e) {
+            log.debug("No schema fingerprint to compare with: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static void write(DataSource dataSource, String fingerprint) {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement update =
+                            connection.prepareStatement(
+                                    "update schema_fingerprint set fingerprint = ?,"
+                                            + " migrated_at = CURRENT_TIMESTAMP where id = ?");
+                    PreparedStatement insert =
+                            connection.prepareStatement(
+                                    "insert into schema_fingerprint (id, fingerprint)"
+                                            + " values (?, ?)")) {
+                update.setString(1, fingerprint);
+                update.setInt(2, ROW_ID);
+                if (update.executeUpdate() == 0) {
+                    insert.setInt(1, ROW_ID);
+                    insert.setString(2, fingerprint);
+                    insert.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            // the next start migrates again, nothing worse
+            log.warn("Cannot record the schema fingerprint", e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package liqui.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+/**
+ * Startup time: the {@link SchemaFingerprint} shortcut, the time from JVM start to the first
+ * request served, logged and published as {@code application.first-request.time} next to Spring
+ * Boot's {@code application.ready.time}, and the exit of the class data sharing training run.
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+public class StartupConfig {
+
+    private final ApplicationProperties properties;
+    private final AtomicLong firstRequestMillis = new AtomicLong(-1);
+
+    public StartupConfig(ApplicationProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        TimeGauge.builder(
+                        "application.first-request.time",
+                        firstRequestMillis,
+                        TimeUnit.MILLISECONDS,
+                        AtomicLong::get)
+                .description("Time from JVM start to the first request served, -1 before it")
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public static SchemaFingerprint schemaFingerprint() {
+        return new SchemaFingerprint();
+    }
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        if (properties.getStartup().isExitOnReady()) {
+            log.info("Started with application.startup.exit-on-ready, exiting");
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+
+    @EventListener
+    public void onRequestHandled(ServletRequestHandledEvent event) {
+        if (firstRequestMillis.get() < 0) {
+            long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+            if (firstRequestMillis.compareAndSet(-1, uptime)) {
+                log.info("First request served {} ms after the JVM started", uptime);
+            }
+        }
+    }
+}
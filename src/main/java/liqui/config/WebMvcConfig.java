@@ -1,14 +1,21 @@
 package liqui.config;
 
+import java.util.List;
+import liqui.web.interceptors.ClienteRateLimitInterceptor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 @RequiredArgsConstructor
 public class WebMvcConfig implements WebMvcConfigurer {
     private final ApplicationProperties properties;
+    private final ObjectProvider<ClienteRateLimitInterceptor> rateLimitInterceptor;
 
     @Override
     public void addCorsMappings(CorsRegistry registry) {
@@ -18,4 +25,22 @@ public class WebMvcConfig implements WebMvcConfigurer {
                 .allowedOriginPatterns(properties.getCors().getAllowedOriginPatterns())
                 .allowCredentials(properties.getCors().isAllowCredentials());
     }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        rateLimitInterceptor.ifAvailable(
+                interceptor ->
+                        registry.addInterceptor(interceptor)
+                                .excludePathPatterns(
+                                        "/error", "/swagger-ui/**", "/v3/api-docs/**"));
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.replaceAll(
+                converter ->
+                        converter instanceof MappingJackson2HttpMessageConverter jackson
+                                ? new SizedJsonHttpMessageConverter(jackson.getObjectMapper())
+                                : converter);
+    }
 }
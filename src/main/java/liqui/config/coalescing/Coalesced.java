@@ -0,0 +1,15 @@
+package liqui.config.coalescing;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Concurrent calls with equal arguments share one execution, see {@link CoalescingAspect}. Only for
+ * reads whose arguments have value semantics.
+ */
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Coalesced {}
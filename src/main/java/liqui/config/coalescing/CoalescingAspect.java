@@ -0,0 +1,131 @@
+package liqui.config.coalescing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import liqui.config.ApplicationProperties;
+import liqui.model.event.ClientesChangedEvent;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Single flight for {@link Coalesced} methods: the first call with given arguments executes, the
+ * ones arriving while it runs wait for it and get the same result, or the same exception. With
+ * {@code application.coalescing.window} above zero, the result is also handed out for that long
+ * after it completed. Ordered before the transaction advice, so that waiting callers hold no
+ * connection, and skipped inside a transaction, whose reads must see its own writes. Any committed
+ * cliente change forgets the executions in flight and the recent results, so a call that starts
+ * after a write never gets what was read before it.
+ *
+ * <p>Calls are counted in {@code coalescing.calls}, tagged with the method and with {@code
+ * result=executed}, {@code joined} or {@code recent}; the coalescing ratio is the share of the last
+ * two.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CoalescingAspect {
+
+    private final ApplicationProperties.Coalescing config;
+    private final MeterRegistry meterRegistry;
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Cache<Key, Object> recent;
+    private final Map<Method, Counters> counters = new ConcurrentHashMap<>();
+
+    public CoalescingAspect(ApplicationProperties properties, MeterRegistry meterRegistry) {
+        this.config = properties.getCoalescing();
+        this.meterRegistry = meterRegistry;
+        this.recent =
+                config.getWindow().isZero()
+                        ? null
+                        : Caffeine.newBuilder()
+                                .maximumSize(config.getMaximumSize())
+                                .expireAfterWrite(config.getWindow())
+                                .build();
+    }
+
+    @Around("within(liqui..*) && @annotation(liqui.config.coalescing.Coalesced)")
+    public Object coalesce(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!config.isEnabled() || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Counters counter = counters.computeIfAbsent(method, this::counters);
+        Key key = new Key(method, Arrays.asList(joinPoint.getArgs()));
+        if (recent != null) {
+            Object result = recent.getIfPresent(key);
+            if (result != null) {
+                counter.recent.increment();
+                return result;
+            }
+        }
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            counter.joined.increment();
+            return await(leader);
+        }
+        counter.executed.increment();
+        try {
+            Object result = joinPoint.proceed();
+            if (recent != null && result != null && inFlight.get(key) == flight) {
+                recent.put(key, result);
+            }
+            flight.complete(result);
+            return result;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onClientesChanged(ClientesChangedEvent event) {
+        inFlight.clear();
+        if (recent != null) {
+            recent.invalidateAll();
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> leader) throws Throwable {
+        try {
+            return leader.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Counters counters(Method method) {
+        String name = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        return new Counters(
+                counter(name, "executed"), counter(name, "joined"), counter(name, "recent"));
+    }
+
+    private Counter counter(String method, String result) {
+        return Counter.builder("coalescing.calls")
+                .tag("method", method)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Key(Method method, List<Object> args) {}
+
+    private record Counters(Counter executed, Counter joined, Counter recent) {}
+}
@@ -1,5 +1,20 @@
 package liqui.config.logging;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import liqui.config.ApplicationProperties;
+import liqui.exception.BadRequestException;
+import liqui.exception.PreconditionFailedException;
+import liqui.exception.ServiceUnavailableException;
+import liqui.exception.TooManyRequestsException;
 import liqui.utils.AppConstants;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -7,6 +22,7 @@ import org.aspectj.lang.annotation.AfterThrowing;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.env.Environment;
@@ -17,12 +33,23 @@ import org.springframework.stereotype.Component;
 @Component
 public class LoggingAspect {
 
+    static final String METER_NAME = "method.timed";
+
     private final Logger log = LoggerFactory.getLogger(this.getClass());
 
     private final Environment env;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationProperties.Logging config;
+    private final long slowThresholdNanos;
+
+    private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
 
-    public LoggingAspect(Environment env) {
+    public LoggingAspect(
+            Environment env, MeterRegistry meterRegistry, ApplicationProperties properties) {
         this.env = env;
+        this.meterRegistry = meterRegistry;
+        this.config = properties.getLogging();
+        this.slowThresholdNanos = config.getSlowThreshold().toNanos();
     }
 
     @Pointcut(
@@ -33,15 +60,26 @@ public class LoggingAspect {
         // pointcut definition
     }
 
+    /**
+     * The package test comes first: it rejects the framework beans by name, where the annotation
+     * tests would have AspectJ parse the class file of every one of them at startup.
+     */
     @Pointcut(
-            "@within(liqui.config.logging.Loggable) || "
-                    + "@annotation(liqui.config.logging.Loggable)")
+            "within(liqui..*) && (@within(liqui.config.logging.Loggable) || "
+                    + "@annotation(liqui.config.logging.Loggable))")
     public void applicationPackagePointcut() {
         // pointcut definition
     }
 
+    /**
+     * Logs unexpected exceptions. The ones answering a request with a status of its own, a 400 or a
+     * 412 for the client to correct or a 429 or 503 to retry, are outcomes rather than errors.
+     */
     @AfterThrowing(pointcut = "applicationPackagePointcut()", throwing = "e")
     public void logAfterThrowing(JoinPoint joinPoint, Throwable e) {
+        if (isExpected(e)) {
+            return;
+        }
         if (env.acceptsProfiles(Profiles.of(AppConstants.PROFILE_NOT_PROD))) {
             log.error(
                     "Exception in {}.{}() with cause = '{}' and exception = '{}'",
@@ -60,6 +98,12 @@ public class LoggingAspect {
         }
     }
 
+    /**
+     * Records sampled calls into the {@code method.timed} timer of the method, tagged with class,
+     * method and exception. Calls slower than {@code application.logging.slow-threshold} are logged
+     * with their arguments redacted. Apart from the join point Spring AOP builds anyway, a
+     * successful call allocates nothing once its timer exists.
+     */
     @Around("applicationPackagePointcut()")
     public Object logAround(ProceedingJoinPoint joinPoint) throws Throwable {
         if (log.isTraceEnabled()) {
@@ -68,16 +112,84 @@ public class LoggingAspect {
                     joinPoint.getSignature().getDeclaringTypeName(),
                     joinPoint.getSignature().getName());
         }
-        long start = System.currentTimeMillis();
-        Object result = joinPoint.proceed();
-        long end = System.currentTimeMillis();
+        double sampleRate = config.getSampleRate();
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return joinPoint.proceed();
+        }
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            long elapsed = System.nanoTime() - start;
+            timer(joinPoint, e.getClass().getSimpleName()).record(elapsed, TimeUnit.NANOSECONDS);
+            logIfSlow(joinPoint, elapsed);
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Timer timer = timers.get(method);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(method, key -> timer(joinPoint, "none"));
+        }
+        timer.record(elapsed, TimeUnit.NANOSECONDS);
+        logIfSlow(joinPoint, elapsed);
         if (log.isTraceEnabled()) {
             log.trace(
                     "Exit: {}.{}(). Time taken: {} millis",
                     joinPoint.getSignature().getDeclaringTypeName(),
                     joinPoint.getSignature().getName(),
-                    end - start);
+                    TimeUnit.NANOSECONDS.toMillis(elapsed));
         }
         return result;
     }
+
+    private static boolean isExpected(Throwable e) {
+        return e instanceof BadRequestException
+                || e instanceof PreconditionFailedException
+                || e instanceof TooManyRequestsException
+                || e instanceof ServiceUnavailableException;
+    }
+
+    private void logIfSlow(ProceedingJoinPoint joinPoint, long elapsedNanos) {
+        if (elapsedNanos > slowThresholdNanos && log.isWarnEnabled()) {
+            log.warn(
+                    "Slow call: {}.{}({}) took {} millis",
+                    joinPoint.getSignature().getDeclaringTypeName(),
+                    joinPoint.getSignature().getName(),
+                    redact(joinPoint.getArgs()),
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        }
+    }
+
+    private Timer timer(ProceedingJoinPoint joinPoint, String exception) {
+        return Timer.builder(METER_NAME)
+                .description("Latency of @Loggable methods")
+                .tag("class", joinPoint.getSignature().getDeclaringType().getSimpleName())
+                .tag("method", joinPoint.getSignature().getName())
+                .tag("exception", exception)
+                .publishPercentiles(config.getPercentiles())
+                .publishPercentileHistogram(config.isPercentileHistogram())
+                .distributionStatisticExpiry(Duration.ofMinutes(2))
+                .register(meterRegistry);
+    }
+
+    /**
+     * Keeps numbers, booleans, enums and nulls, which carry no personal data, and reduces
+     * everything else to its type.
+     */
+    static String redact(Object[] args) {
+        return Arrays.stream(args)
+                .map(
+                        arg -> {
+                            if (arg == null
+                                    || arg instanceof Number
+                                    || arg instanceof Boolean
+                                    || arg instanceof Enum<?>) {
+                                return String.valueOf(arg);
+                            }
+                            return arg.getClass().getSimpleName() + "[redacted]";
+                        })
+                .collect(Collectors.joining(", "));
+    }
 }
@@ -6,8 +6,11 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import java.util.Objects;
+import liqui.model.validation.Utf8Size;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -22,14 +25,26 @@ import org.hibernate.Hibernate;
 @AllArgsConstructor
 public class Cliente {
 
+    /** Bound of {@code clientes_text_bytes_check}, which keeps the text index entries in a page. */
+    public static final int MAX_TEXT_BYTES = 2048;
+
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
-    @Column(nullable = false)
+    @Column(nullable = false, length = 1024)
     @NotEmpty(message = "Text cannot be empty")
+    @Size(max = 1024, message = "Text cannot be longer than 1024 characters")
+    @Utf8Size(max = MAX_TEXT_BYTES, message = "Text cannot take more than 2048 bytes")
     private String text;
 
+    @Version private Long version;
+
+    public Cliente(Long id, String text) {
+        this.id = id;
+        this.text = text;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -1,17 +1,22 @@
 package liqui.exception;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.WebRequest;
 
 @ControllerAdvice
 public class ErrorDetailProblemHandlingControllerAdvice {
@@ -39,6 +44,74 @@ public class ErrorDetailProblemHandlingControllerAdvice {
         return problemDetail;
     }
 
+    @ExceptionHandler(BadRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    ProblemDetail onException(BadRequestException badRequestException) {
+        ProblemDetail problemDetail =
+                ProblemDetail.forStatusAndDetail(
+                        HttpStatusCode.valueOf(400), badRequestException.getMessage());
+        problemDetail.setTitle("Bad Request");
+        return problemDetail;
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    ProblemDetail onException(PreconditionFailedException preconditionFailedException) {
+        ProblemDetail problemDetail =
+                ProblemDetail.forStatusAndDetail(
+                        HttpStatusCode.valueOf(412), preconditionFailedException.getMessage());
+        problemDetail.setTitle("Precondition Failed");
+        return problemDetail;
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    ResponseEntity<ProblemDetail> onException(
+            ServiceUnavailableException serviceUnavailableException) {
+        return retryLater(
+                HttpStatus.SERVICE_UNAVAILABLE,
+                serviceUnavailableException.getMessage(),
+                serviceUnavailableException.getRetryAfter());
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    ResponseEntity<ProblemDetail> onException(TooManyRequestsException tooManyRequestsException) {
+        return retryLater(
+                HttpStatus.TOO_MANY_REQUESTS,
+                tooManyRequestsException.getMessage(),
+                tooManyRequestsException.getRetryAfter());
+    }
+
+    /**
+     * A concurrent update won the race between our read and our commit: the If-Match precondition
+     * failed when there was one, otherwise it is a plain conflict.
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    ResponseEntity<ProblemDetail> onException(
+            OptimisticLockingFailureException optimisticLockingFailureException,
+            WebRequest webRequest) {
+        HttpStatus status =
+                webRequest.getHeader(HttpHeaders.IF_MATCH) != null
+                        ? HttpStatus.PRECONDITION_FAILED
+                        : HttpStatus.CONFLICT;
+        ProblemDetail problemDetail =
+                ProblemDetail.forStatusAndDetail(
+                        status,
+                        "The resource was modified concurrently, retry with its new version.");
+        problemDetail.setTitle(status.getReasonPhrase());
+        return ResponseEntity.status(status).body(problemDetail);
+    }
+
+    private static ResponseEntity<ProblemDetail> retryLater(
+            HttpStatus status, String detail, Duration retryAfter) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(status, detail);
+        problemDetail.setTitle(status.getReasonPhrase());
+        // whole seconds, rounded up so that clients never come back too early
+        long seconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(seconds))
+                .body(problemDetail);
+    }
+
     @Data
     @AllArgsConstructor
     static class ApiValidationError {
@@ -0,0 +1,20 @@
+package liqui.model.event;
+
+import java.util.List;
+import liqui.entities.Cliente;
+
+/**
+ * Published by {@code ClienteService} for every write, inside its transaction. Listeners that need
+ * the committed state use {@code @TransactionalEventListener}; by then the versions of the saved
+ * clientes are final.
+ */
+public record ClientesChangedEvent(List<Cliente> saved, List<Long> deleted) {
+
+    public static ClientesChangedEvent saved(Cliente cliente) {
+        return new ClientesChangedEvent(List.of(cliente), List.of());
+    }
+
+    public static ClientesChangedEvent deleted(Long id) {
+        return new ClientesChangedEvent(List.of(), List.of(id));
+    }
+}
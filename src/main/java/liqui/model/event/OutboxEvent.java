@@ -0,0 +1,22 @@
+package liqui.model.event;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import java.time.Instant;
+
+/**
+ * Row of the {@code outbox} table: one committed cliente change, {@code payload} being its {@code
+ * ClienteChange} as JSON. The id orders the events and lets a sink drop the duplicates of an
+ * at-least-once delivery.
+ */
+public record OutboxEvent(
+        Long id,
+        String eventType,
+        Long clienteId,
+        @JsonRawValue String payload,
+        Instant createdAt) {
+
+    /** Event to insert; the database assigns the id and the creation time. */
+    public static OutboxEvent of(String eventType, Long clienteId, String payload) {
+        return new OutboxEvent(null, eventType, clienteId, payload, null);
+    }
+}
@@ -0,0 +1,49 @@
+package liqui.model.query;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import liqui.exception.BadRequestException;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Position of the last row of a keyset page: the sort property, its direction, the value of that
+ * property and the id used as tie-breaker. Serialized as an opaque url-safe token.
+ */
+public record ClienteCursor(String sortBy, Sort.Direction direction, Object key, long id) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String value =
+                key == null
+                        ? ""
+                        : Base64.getUrlEncoder()
+                                .withoutPadding()
+                                .encodeToString(key.toString().getBytes(StandardCharsets.UTF_8));
+        String token = String.join(SEPARATOR, sortBy, direction.name(), String.valueOf(id), value);
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ClienteCursor decode(String token) {
+        try {
+            String decoded =
+                    new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\" + SEPARATOR, -1);
+            if (parts.length != 4) {
+                throw new BadRequestException("Invalid cursor: " + token);
+            }
+            long id = Long.parseLong(parts[2]);
+            String key =
+                    new String(Base64.getUrlDecoder().decode(parts[3]), StandardCharsets.UTF_8);
+            return new ClienteCursor(
+                    parts[0],
+                    Sort.Direction.valueOf(parts[1]),
+                    "id".equals(parts[0]) ? Long.valueOf(id) : key,
+                    id);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package liqui.model.query;
+
+import java.util.EnumSet;
+import java.util.Set;
+import liqui.exception.BadRequestException;
+
+/**
+ * Columns a listing can be asked for with {@code fields=}. {@code id} and {@code version} are
+ * always returned: they identify an element and make up its ETag.
+ */
+public enum ClienteField {
+    ID("id"),
+    TEXT("text"),
+    VERSION("version");
+
+    private final String property;
+
+    ClienteField(String property) {
+        this.property = property;
+    }
+
+    public String property() {
+        return property;
+    }
+
+    /** Parses a comma-separated list of property names, adding the fields always returned. */
+    public static Set<ClienteField> parse(String fields) {
+        Set<ClienteField> parsed = EnumSet.of(ID, VERSION);
+        for (String name : fields.split(",")) {
+            parsed.add(from(name.trim()));
+        }
+        return parsed;
+    }
+
+    private static ClienteField from(String value) {
+        for (ClienteField field : values()) {
+            if (field.property.equals(value)) {
+                return field;
+            }
+        }
+        throw new BadRequestException("Unknown field: " + value);
+    }
+}
@@ -0,0 +1,29 @@
+package liqui.model.query;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import java.util.Locale;
+import liqui.exception.BadRequestException;
+
+/** How {@code totalElements} of a listing page is obtained. */
+public enum CountStrategy {
+    /** {@code select count(*)} on every request. */
+    EXACT,
+    /** No count at all, only {@code hasNext} is known. */
+    NONE,
+    /** Planner row estimate, or a periodically refreshed exact count where there is none. */
+    ESTIMATE;
+
+    @JsonValue
+    public String value() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static CountStrategy from(String value) {
+        for (CountStrategy strategy : values()) {
+            if (strategy.name().equalsIgnoreCase(value)) {
+                return strategy;
+            }
+        }
+        throw new BadRequestException("Unknown count strategy: " + value);
+    }
+}
@@ -0,0 +1,13 @@
+package liqui.model.query;
+
+/**
+ * A page of the listing. {@code sortDir} is normalized to {@code asc} or {@code desc}, anything but
+ * {@code asc} sorting descending, so that equal queries are equal records.
+ */
+public record FindClientesQuery(
+        int pageNo, int pageSize, String sortBy, String sortDir, CountStrategy countStrategy) {
+
+    public FindClientesQuery {
+        sortDir = "asc".equalsIgnoreCase(sortDir) ? "asc" : "desc";
+    }
+}
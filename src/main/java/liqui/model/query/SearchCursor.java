@@ -0,0 +1,37 @@
+package liqui.model.query;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import liqui.exception.BadRequestException;
+
+/** Rank and id of the last hit of a search page, as an opaque url-safe token. */
+public record SearchCursor(float rank, long id) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String token = Float.toString(rank) + SEPARATOR + id;
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(String token) {
+        try {
+            String decoded =
+                    new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\" + SEPARATOR, -1);
+            if (parts.length != 2) {
+                throw new BadRequestException("Invalid cursor: " + token);
+            }
+            return new SearchCursor(Float.parseFloat(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor: " + token);
+        }
+    }
+
+    /** Whether a hit sorts after this position: lower rank first, then higher id. */
+    public boolean precedes(float otherRank, long otherId) {
+        return otherRank < rank || (otherRank == rank && otherId > id);
+    }
+}
@@ -0,0 +1,55 @@
+package liqui.model.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import liqui.exception.BadRequestException;
+
+/**
+ * Words of a search, each matched as a prefix and all required. Words are runs of letters and
+ * digits, lowercased, the way PostgreSQL's {@code simple} text search configuration splits them.
+ */
+public record SearchQuery(List<String> terms) {
+
+    public static final int MAX_TERMS = 8;
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    public static SearchQuery parse(String q) {
+        List<String> terms = q == null ? List.of() : tokenize(q).stream().distinct().toList();
+        if (terms.isEmpty()) {
+            throw new BadRequestException("Search needs at least one word");
+        }
+        if (terms.size() > MAX_TERMS) {
+            throw new BadRequestException("Search accepts at most " + MAX_TERMS + " words");
+        }
+        return new SearchQuery(terms);
+    }
+
+    public static List<String> tokenize(String text) {
+        Matcher matcher = WORD.matcher(text.toLowerCase(Locale.ROOT));
+        List<String> tokens = new ArrayList<>();
+        while (matcher.find()) {
+            tokens.add(matcher.group());
+        }
+        return tokens;
+    }
+
+    /** As a {@code to_tsquery} expression; safe to bind since terms hold only letters/digits. */
+    public String toTsQuery() {
+        return terms.stream().map(term -> term + ":*").collect(Collectors.joining(" & "));
+    }
+
+    /** Whether {@code token} starts with one of the terms. */
+    public boolean matches(String token) {
+        for (String term : terms) {
+            if (token.startsWith(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
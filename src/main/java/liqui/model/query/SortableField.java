@@ -0,0 +1,52 @@
+package liqui.model.query;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import liqui.exception.BadRequestException;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Properties a listing can be sorted by, each backed by an index that already returns the rows in
+ * that order with {@code id} as tie-breaker, so no listing needs a sort over the whole table.
+ */
+public enum SortableField {
+    ID("id", "clientes primary key"),
+    TEXT("text", "clientes_text_id_idx");
+
+    private final String property;
+    private final String index;
+
+    SortableField(String property, String index) {
+        this.property = property;
+        this.index = index;
+    }
+
+    public String property() {
+        return property;
+    }
+
+    public String index() {
+        return index;
+    }
+
+    /** Orders by this property and then by id, the column order of its index. */
+    public Sort sort(Sort.Direction direction) {
+        Sort byId = Sort.by(direction, ID.property);
+        return this == ID ? byId : Sort.by(direction, property).and(byId);
+    }
+
+    public static SortableField from(String value) {
+        for (SortableField field : values()) {
+            if (field.property.equals(value)) {
+                return field;
+            }
+        }
+        throw new BadRequestException(
+                "Cannot sort by "
+                        + value
+                        + ", sortable fields are: "
+                        + Arrays.stream(values())
+                                .map(SortableField::property)
+                                .collect(Collectors.joining(", ")));
+    }
+}
@@ -0,0 +1,14 @@
+package liqui.model.request;
+
+import jakarta.validation.constraints.Size;
+import liqui.entities.Cliente;
+import liqui.model.validation.Utf8Size;
+
+/** Body of {@code PATCH /{id}}, merge-patch style: an absent field is left as it is. */
+public record ClientePatch(
+        @Size(min = 1, message = "Text cannot be empty")
+                @Size(max = 1024, message = "Text cannot be longer than 1024 characters")
+                @Utf8Size(
+                        max = Cliente.MAX_TEXT_BYTES,
+                        message = "Text cannot take more than 2048 bytes")
+                String text) {}
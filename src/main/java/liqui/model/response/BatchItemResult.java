@@ -0,0 +1,26 @@
+package liqui.model.response;
+
+import java.util.List;
+
+public record BatchItemResult(int index, Long id, Status status, List<Violation> violations) {
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        REJECTED
+    }
+
+    public record Violation(String field, String message) {}
+
+    public static BatchItemResult created(int index, Long id) {
+        return new BatchItemResult(index, id, Status.CREATED, List.of());
+    }
+
+    public static BatchItemResult updated(int index, Long id) {
+        return new BatchItemResult(index, id, Status.UPDATED, List.of());
+    }
+
+    public static BatchItemResult rejected(int index, Long id, List<Violation> violations) {
+        return new BatchItemResult(index, id, Status.REJECTED, violations);
+    }
+}
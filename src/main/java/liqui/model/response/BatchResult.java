@@ -0,0 +1,19 @@
+package liqui.model.response;
+
+import java.util.List;
+
+public record BatchResult(int accepted, int rejected, List<BatchItemResult> items) {
+
+    public BatchResult(List<BatchItemResult> items) {
+        this(
+                (int)
+                        items.stream()
+                                .filter(item -> item.status() != BatchItemResult.Status.REJECTED)
+                                .count(),
+                (int)
+                        items.stream()
+                                .filter(item -> item.status() == BatchItemResult.Status.REJECTED)
+                                .count(),
+                items);
+    }
+}
@@ -0,0 +1,36 @@
+package liqui.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonValue;
+import java.util.Locale;
+import liqui.entities.Cliente;
+
+/** Data of a {@code GET /changes} event; a deletion only carries the id. */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ClienteChange(Type type, Long id, String text, Long version) {
+
+    /** A cliente still at its first version was created by the write. */
+    public static ClienteChange saved(Cliente cliente) {
+        Long version = cliente.getVersion();
+        return new ClienteChange(
+                version == null || version == 0 ? Type.CREATED : Type.UPDATED,
+                cliente.getId(),
+                cliente.getText(),
+                version == null ? 0 : version);
+    }
+
+    public static ClienteChange deleted(Long id) {
+        return new ClienteChange(Type.DELETED, id, null, null);
+    }
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED;
+
+        @JsonValue
+        public String value() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package liqui.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Listing element holding only the columns asked for with {@code fields=}; read as plain values,
+ * never as a managed {@code Cliente}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ClienteView(Long id, String text, Long version) {}
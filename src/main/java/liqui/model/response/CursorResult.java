@@ -0,0 +1,7 @@
+package liqui.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+public record CursorResult<T>(
+        List<T> data, int pageSize, String nextCursor, @JsonProperty("hasNext") boolean hasNext) {}
@@ -0,0 +1,24 @@
+package liqui.model.response;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import liqui.model.query.DataFormat;
+
+public record ImportJobStatus(
+        UUID jobId,
+        DataFormat format,
+        State state,
+        long rowsRead,
+        long accepted,
+        long rejected,
+        Instant startedAt,
+        Instant finishedAt,
+        List<String> errors) {
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -2,17 +2,20 @@ package liqui.model.response;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
+import liqui.model.query.CountStrategy;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 public record PagedResult<T>(
         List<T> data,
-        long totalElements,
+        Long totalElements,
         int pageNumber,
-        int totalPages,
+        Integer totalPages,
         @JsonProperty("isFirst") boolean isFirst,
         @JsonProperty("isLast") boolean isLast,
         @JsonProperty("hasNext") boolean hasNext,
-        @JsonProperty("hasPrevious") boolean hasPrevious) {
+        @JsonProperty("hasPrevious") boolean hasPrevious,
+        CountStrategy countStrategy) {
     public PagedResult(Page<T> page) {
         this(
                 page.getContent(),
@@ -22,6 +25,36 @@ public record PagedResult<T>(
                 page.isFirst(),
                 page.isLast(),
                 page.hasNext(),
-                page.hasPrevious());
+                page.hasPrevious(),
+                CountStrategy.EXACT);
+    }
+
+    /**
+     * Page whose total is unknown ({@code totalElements == null}) or estimated; the estimate is
+     * clamped so that it never contradicts the rows actually read.
+     */
+    public PagedResult(Slice<T> slice, Long totalElements, CountStrategy countStrategy) {
+        this(
+                slice.getContent(),
+                clamp(slice, totalElements),
+                slice.getNumber() + 1,
+                totalElements == null ? null : totalPages(slice, clamp(slice, totalElements)),
+                slice.isFirst(),
+                slice.isLast(),
+                slice.hasNext(),
+                slice.hasPrevious(),
+                countStrategy);
+    }
+
+    private static Long clamp(Slice<?> slice, Long totalElements) {
+        if (totalElements == null || !slice.hasContent()) {
+            return totalElements;
+        }
+        long seen = (long) slice.getNumber() * slice.getSize() + slice.getNumberOfElements();
+        return slice.hasNext() ? Math.max(totalElements, seen + 1) : seen;
+    }
+
+    private static Integer totalPages(Slice<?> slice, long totalElements) {
+        return slice.getSize() == 0 ? 1 : (int) Math.ceil((double) totalElements / slice.getSize());
     }
 }
@@ -0,0 +1,13 @@
+package liqui.model.response;
+
+import java.time.Instant;
+
+public record WriteBehindStatus(
+        boolean enabled,
+        int queued,
+        int capacity,
+        long accepted,
+        long inserted,
+        long walBytes,
+        Instant lastFlushAt,
+        String lastError) {}
@@ -0,0 +1,34 @@
+package liqui.model.validation;
+
+import static java.lang.annotation.ElementType.ANNOTATION_TYPE;
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.ElementType.TYPE_USE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * The annotated string takes at most {@code max} bytes in UTF-8; {@code null} is valid. Where
+ * {@code @Size} counts characters, this bounds what an index entry on the value takes, whatever the
+ * script of the text.
+ */
+@Documented
+@Constraint(validatedBy = Utf8SizeValidator.class)
+@Target({METHOD, FIELD, ANNOTATION_TYPE, PARAMETER, TYPE_USE})
+@Retention(RUNTIME)
+public @interface Utf8Size {
+
+    int max();
+
+    String message() default "must take at most {max} bytes in UTF-8";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,27 @@
+package liqui.model.validation;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import java.nio.charset.StandardCharsets;
+
+public class Utf8SizeValidator implements ConstraintValidator<Utf8Size, CharSequence> {
+
+    private int max;
+
+    @Override
+    public void initialize(Utf8Size constraint) {
+        this.max = constraint.max();
+    }
+
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+        if (value == null) {
+            return true;
+        }
+        // no UTF-16 unit takes more than 3 bytes, most values need no encoding
+        if (value.length() * 3L <= max) {
+            return true;
+        }
+        return value.toString().getBytes(StandardCharsets.UTF_8).length <= max;
+    }
+}
@@ -1,6 +1,22 @@
 package liqui.repositories;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import liqui.entities.Cliente;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface ClienteRepository extends JpaRepository<Cliente, Long> {}
+public interface ClienteRepository extends JpaRepository<Cliente, Long>, ClienteRepositoryCustom {
+
+    Slice<Cliente> findAllBy(Pageable pageable);
+
+    @Query("select c.id from Cliente c where c.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select c.version from Cliente c where c.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+}
@@ -0,0 +1,92 @@
+package liqui.repositories;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import liqui.entities.Cliente;
+import liqui.model.query.ClienteCursor;
+import liqui.model.query.ClienteField;
+import liqui.model.query.SearchCursor;
+import liqui.model.query.SearchQuery;
+import liqui.model.response.ClienteView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+public interface ClienteRepositoryCustom {
+
+    /** Increment of {@code clientes_seq}, and so the size of an id block. */
+    int ID_ALLOCATION_SIZE = 50;
+
+    /**
+     * Keyset page: rows strictly after {@code after} in {@code (sortBy, id)} order, without OFFSET
+     * and without a count query.
+     */
+    List<Cliente> findPageAfter(
+            String sortBy, Sort.Direction direction, ClienteCursor after, int limit);
+
+    /**
+     * Keyset page of {@code fields} only, as plain values; {@code fields} has to hold the {@code
+     * sortBy} one, which the next cursor is made of.
+     */
+    List<ClienteView> findViewsAfter(
+            Set<ClienteField> fields,
+            String sortBy,
+            Sort.Direction direction,
+            ClienteCursor after,
+            int limit);
+
+    /**
+     * Offset page of {@code fields} only, in the order of {@code pageable}, as plain values that
+     * are neither managed nor snapshotted. Reads one extra row to know whether there is a next
+     * page, and never counts.
+     */
+    Slice<ClienteView> findViews(Set<ClienteField> fields, Pageable pageable);
+
+    /**
+     * Row count as estimated by the query planner, or {@code null} when the database keeps no
+     * usable estimate.
+     */
+    Long estimateCount();
+
+    /**
+     * All clientes in id order as a forward-only, read-only cursor fetching {@code fetchSize} rows
+     * per round trip. Must be consumed, and closed, inside a transaction.
+     */
+    Stream<Cliente> streamAll(int fetchSize);
+
+    /**
+     * Reserves {@code count} ids from {@code clientes_seq} the way the pooled-lo optimizer does:
+     * every value drawn from the sequence opens a block of {@code increment} ids.
+     */
+    List<Long> allocateIds(int count);
+
+    /**
+     * Inserts new clientes with PostgreSQL {@code COPY}, assigning their ids up front; runs on the
+     * connection of the current transaction.
+     */
+    void copyInsert(List<Cliente> clientes);
+
+    /**
+     * Inserts new clientes whose ids were allocated up front, at version 0, in a single JDBC batch
+     * ({@code COPY} on PostgreSQL); runs on the connection of the current transaction.
+     */
+    void insertAll(List<Cliente> clientes);
+
+    /**
+     * PostgreSQL full-text search over {@code text} through the GIN-indexed {@code text_search}
+     * column: best {@code ts_rank} first, then id, strictly after {@code after}.
+     */
+    List<ClienteSearchHit> search(SearchQuery query, SearchCursor after, int limit);
+
+    /**
+     * Sets {@code text} and bumps the version in a single statement, returning the updated row;
+     * empty when no row has that id or, with a non-null {@code expectedVersion}, that version.
+     * Bypasses the persistence context, which must not hold the cliente.
+     */
+    Optional<Cliente> updateText(Long id, String text, Long expectedVersion);
+
+    /** Deletes in a single statement, returning the deleted row; empty when there was none. */
+    Optional<Cliente> deleteReturning(Long id);
+}
@@ -0,0 +1,352 @@
+package liqui.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import liqui.config.DatabasePlatform;
+import liqui.entities.Cliente;
+import liqui.model.query.ClienteCursor;
+import liqui.model.query.ClienteField;
+import liqui.model.query.SearchCursor;
+import liqui.model.query.SearchQuery;
+import liqui.model.response.ClienteView;
+import liqui.utils.CsvUtils;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.HibernateHints;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+
+class ClienteRepositoryCustomImpl implements ClienteRepositoryCustom {
+
+    @PersistenceContext private EntityManager entityManager;
+
+    private final DatabasePlatform databasePlatform;
+
+    ClienteRepositoryCustomImpl(DatabasePlatform databasePlatform) {
+        this.databasePlatform = databasePlatform;
+    }
+
+    @Override
+    public List<Cliente> findPageAfter(
+            String sortBy, Sort.Direction direction, ClienteCursor after, int limit) {
+        return keysetQuery("c", Cliente.class, sortBy, direction, after)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<ClienteView> findViewsAfter(
+            Set<ClienteField> fields,
+            String sortBy,
+            Sort.Direction direction,
+            ClienteCursor after,
+            int limit) {
+        // property names come from ClienteField and SortableField, never raw user input
+        List<ClienteField> selected = List.copyOf(fields);
+        List<Object[]> rows =
+                keysetQuery(columns(selected), Object[].class, sortBy, direction, after)
+                        .setMaxResults(limit)
+                        .getResultList();
+        return rows.stream().map(row -> toView(selected, row)).toList();
+    }
+
+    private <T> TypedQuery<T> keysetQuery(
+            String select,
+            Class<T> resultClass,
+            String sortBy,
+            Sort.Direction direction,
+            ClienteCursor after) {
+        // sortBy is checked against the entity properties by the caller, never raw user input
+        boolean byId = "id".equals(sortBy);
+        String operator = direction.isAscending() ? ">" : "<";
+        String order = direction.isAscending() ? "asc" : "desc";
+
+        StringBuilder jpql = new StringBuilder("select ").append(select).append(" from Cliente c");
+        if (after != null) {
+            jpql.append(
+                    byId
+                            ? " where c.id " + operator + " :id"
+                            : " where (c." + sortBy + ", c.id) " + operator + " (:key, :id)");
+        }
+        jpql.append(" order by ");
+        if (!byId) {
+            jpql.append("c.").append(sortBy).append(' ').append(order).append(", ");
+        }
+        jpql.append("c.id ").append(order);
+
+        TypedQuery<T> query = entityManager.createQuery(jpql.toString(), resultClass);
+        if (after != null) {
+            query.setParameter("id", after.id());
+            if (!byId) {
+                query.setParameter("key", after.key());
+            }
+        }
+        return query;
+    }
+
+    @Override
+    public Slice<ClienteView> findViews(Set<ClienteField> fields, Pageable pageable) {
+        // property names come from ClienteField and SortableField, never raw user input
+        List<ClienteField> selected = List.copyOf(fields);
+        String order =
+                pageable.getSort().isUnsorted()
+                        ? "c.id"
+                        : pageable.getSort().stream()
+                                .map(
+                                        sort ->
+                                                "c."
+                                                        + sort.getProperty()
+                                                        + (sort.isAscending() ? " asc" : " desc"))
+                                .collect(Collectors.joining(", "));
+        String jpql = "select " + columns(selected) + " from Cliente c order by " + order;
+
+        List<Object[]> rows =
+                entityManager
+                        .createQuery(jpql, Object[].class)
+                        .setFirstResult((int) pageable.getOffset())
+                        .setMaxResults(pageable.getPageSize() + 1)
+                        .getResultList();
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        List<ClienteView> views = new ArrayList<>(Math.min(rows.size(), pageable.getPageSize()));
+        for (Object[] row : hasNext ? rows.subList(0, pageable.getPageSize()) : rows) {
+            views.add(toView(selected, row));
+        }
+        return new SliceImpl<>(views, pageable, hasNext);
+    }
+
+    private static String columns(List<ClienteField> selected) {
+        return selected.stream()
+                .map(field -> "c." + field.property())
+                .collect(Collectors.joining(", "));
+    }
+
+    private static ClienteView toView(List<ClienteField> selected, Object[] row) {
+        int text = selected.indexOf(ClienteField.TEXT);
+        return new ClienteView(
+                (Long) row[selected.indexOf(ClienteField.ID)],
+                text < 0 ? null : (String) row[text],
+                (Long) row[selected.indexOf(ClienteField.VERSION)]);
+    }
+
+    @Override
+    public Long estimateCount() {
+        if (!databasePlatform.isPostgreSql()) {
+            return null;
+        }
+        List<?> rows =
+                entityManager
+                        .createNativeQuery(
+                                // the table itself, or its partitions once it is partitioned
+                                "select cast(sum(reltuples) as bigint) from pg_class"
+                                        + " where relkind = 'r' and reltuples > 0"
+                                        + " and (oid = to_regclass('clientes') or oid in"
+                                        + " (select inhrelid from pg_inherits"
+                                        + " where inhparent = to_regclass('clientes')))")
+                        .getResultList();
+        Number reltuples = rows.isEmpty() ? null : (Number) rows.get(0);
+        // -1 (PostgreSQL 14+) or 0 means a table was never analyzed, none was if there is no sum
+        return reltuples == null ? null : reltuples.longValue();
+    }
+
+    @Override
+    public Stream<Cliente> streamAll(int fetchSize) {
+        return entityManager
+                .createQuery("select c from Cliente c order by c.id", Cliente.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    @Override
+    public List<Long> allocateIds(int count) {
+        int blocks = (count + ID_ALLOCATION_SIZE - 1) / ID_ALLOCATION_SIZE;
+        List<Long> ids = new ArrayList<>(count);
+        for (Number blockStart : nextSequenceValues(blocks)) {
+            for (int i = 0; i < ID_ALLOCATION_SIZE && ids.size() < count; i++) {
+                ids.add(blockStart.longValue() + i);
+            }
+        }
+        return ids;
+    }
+
+    private List<Number> nextSequenceValues(int count) {
+        if (databasePlatform.isPostgreSql()) {
+            return entityManager
+                    .createNativeQuery(
+                            "select nextval('clientes_seq') from generate_series(1, :count)",
+                            Long.class)
+                    .setParameter("count", count)
+                    .getResultList();
+        }
+        String nextValueSql =
+                entityManager
+                        .unwrap(Session.class)
+                        .getSessionFactory()
+                        .unwrap(SessionFactoryImplementor.class)
+                        .getJdbcServices()
+                        .getDialect()
+                        .getSequenceSupport()
+                        .getSequenceNextValString("clientes_seq");
+        List<Number> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add((Number) entityManager.createNativeQuery(nextValueSql).getSingleResult());
+        }
+        return values;
+    }
+
+    @Override
+    public void copyInsert(List<Cliente> clientes) {
+        List<Long> ids = allocateIds(clientes.size());
+        for (int i = 0; i < clientes.size(); i++) {
+            clientes.get(i).setId(ids.get(i));
+        }
+        copy(clientes);
+    }
+
+    @Override
+    public void insertAll(List<Cliente> clientes) {
+        if (databasePlatform.isPostgreSql()) {
+            copy(clientes);
+            return;
+        }
+        entityManager
+                .unwrap(Session.class)
+                .doWork(
+                        connection -> {
+                            try (PreparedStatement statement =
+                                    connection.prepareStatement(
+                                            "insert into clientes (id, text, version)"
+                                                    + " values (?, ?, 0)")) {
+                                for (Cliente cliente : clientes) {
+                                    statement.setLong(1, cliente.getId());
+                                    statement.setString(2, cliente.getText());
+                                    statement.addBatch();
+                                }
+                                statement.executeBatch();
+                            }
+                        });
+    }
+
+    /** {@code COPY} leaves the version to its column default, 0. */
+    private void copy(List<Cliente> clientes) {
+        entityManager
+                .unwrap(Session.class)
+                .doWork(
+                        connection -> {
+                            CopyIn copyIn =
+                                    connection
+                                            .unwrap(PGConnection.class)
+                                            .getCopyAPI()
+                                            .copyIn(
+                                                    "COPY clientes (id, text) FROM STDIN"
+                                                            + " WITH (FORMAT csv)");
+                            try {
+                                for (Cliente cliente : clientes) {
+                                    byte[] row =
+                                            (cliente.getId()
+                                                            + ","
+                                                            + CsvUtils.escape(cliente.getText())
+                                                            + "\n")
+                                                    .getBytes(StandardCharsets.UTF_8);
+                                    copyIn.writeToCopy(row, 0, row.length);
+                                }
+                                copyIn.endCopy();
+                            } finally {
+                                if (copyIn.isActive()) {
+                                    copyIn.cancelCopy();
+                                }
+                            }
+                        });
+    }
+
+    @Override
+    public List<ClienteSearchHit> search(SearchQuery searchQuery, SearchCursor after, int limit) {
+        String rank = "ts_rank(c.text_search, q)";
+        StringBuilder sql =
+                new StringBuilder("select c.id, c.text, c.version, ")
+                        .append(rank)
+                        .append(" as rank from clientes c, to_tsquery('simple', :query) q")
+                        .append(" where c.text_search @@ q");
+        if (after != null) {
+            sql.append(" and (")
+                    .append(rank)
+                    .append(" < cast(:rank as real) or (")
+                    .append(rank)
+                    .append(" = cast(:rank as real) and c.id > :id))");
+        }
+        sql.append(" order by rank desc, c.id limit :limit");
+
+        Query query =
+                entityManager
+                        .createNativeQuery(sql.toString())
+                        .setParameter("query", searchQuery.toTsQuery())
+                        .setParameter("limit", limit)
+                        .setHint(HibernateHints.HINT_READ_ONLY, true);
+        if (after != null) {
+            query.setParameter("rank", after.rank()).setParameter("id", after.id());
+        }
+        List<?> rows = query.getResultList();
+        return rows.stream()
+                .map(Object[].class::cast)
+                .map(row -> new ClienteSearchHit(toCliente(row), ((Number) row[3]).floatValue()))
+                .toList();
+    }
+
+    @Override
+    public Optional<Cliente> updateText(Long id, String text, Long expectedVersion) {
+        String update =
+                "update clientes set text = :text, version = version + 1 where id = :id"
+                        + (expectedVersion != null ? " and version = :version" : "");
+        Query query =
+                entityManager
+                        .createNativeQuery(returning(update, "final"))
+                        .setParameter("text", text)
+                        .setParameter("id", id);
+        if (expectedVersion != null) {
+            query.setParameter("version", expectedVersion);
+        }
+        return singleRow(query);
+    }
+
+    @Override
+    public Optional<Cliente> deleteReturning(Long id) {
+        return singleRow(
+                entityManager
+                        .createNativeQuery(returning("delete from clientes where id = :id", "old"))
+                        .setParameter("id", id));
+    }
+
+    /**
+     * PostgreSQL {@code RETURNING}, or the SQL standard data change delta table that H2 has
+     * instead: {@code final} reads the rows as written, {@code old} as they were before.
+     */
+    private String returning(String statement, String deltaTable) {
+        return databasePlatform.isPostgreSql()
+                ? statement + " returning id, text, version"
+                : "select id, text, version from " + deltaTable + " table (" + statement + ")";
+    }
+
+    private static Optional<Cliente> singleRow(Query query) {
+        List<?> rows = query.getResultList();
+        return rows.isEmpty() ? Optional.empty() : Optional.of(toCliente((Object[]) rows.get(0)));
+    }
+
+    private static Cliente toCliente(Object[] row) {
+        return new Cliente(
+                ((Number) row[0]).longValue(), (String) row[1], ((Number) row[2]).longValue());
+    }
+}
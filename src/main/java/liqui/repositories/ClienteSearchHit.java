@@ -0,0 +1,5 @@
+package liqui.repositories;
+
+import liqui.entities.Cliente;
+
+public record ClienteSearchHit(Cliente cliente, float rank) {}
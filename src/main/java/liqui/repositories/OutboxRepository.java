@@ -0,0 +1,87 @@
+package liqui.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import liqui.config.DatabasePlatform;
+import liqui.model.event.OutboxEvent;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+
+/** Plain JDBC access to the {@code outbox} table, on the connection of the current transaction. */
+@Repository
+public class OutboxRepository {
+
+    @PersistenceContext private EntityManager entityManager;
+
+    private final DatabasePlatform databasePlatform;
+
+    public OutboxRepository(DatabasePlatform databasePlatform) {
+        this.databasePlatform = databasePlatform;
+    }
+
+    /** Inserts {@code events} in a single JDBC batch. */
+    public void insert(List<OutboxEvent> events) {
+        entityManager
+                .unwrap(Session.class)
+                .doWork(
+                        connection -> {
+                            try (PreparedStatement statement =
+                                    connection.prepareStatement(
+                                            "insert into outbox (event_type, cliente_id, payload)"
+                                                    + " values (?, ?, ?)")) {
+                                for (OutboxEvent event : events) {
+                                    statement.setString(1, event.eventType());
+                                    statement.setLong(2, event.clienteId());
+                                    statement.setString(3, event.payload());
+                                    statement.addBatch();
+                                }
+                                statement.executeBatch();
+                            }
+                        });
+    }
+
+    /**
+     * Locks and returns the oldest {@code limit} events no other transaction has locked, so that
+     * several relays drain disjoint batches; the locks last until the transaction ends.
+     */
+    public List<OutboxEvent> claim(int limit) {
+        // H2 has no SKIP LOCKED, its relays wait for each other instead
+        String sql =
+                "select id, event_type, cliente_id, payload, created_at from outbox"
+                        + " order by id fetch first ? rows only for update"
+                        + (databasePlatform.isPostgreSql() ? " skip locked" : "");
+        return entityManager
+                .unwrap(Session.class)
+                .doReturningWork(
+                        connection -> {
+                            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                                statement.setInt(1, limit);
+                                List<OutboxEvent> events = new ArrayList<>();
+                                try (ResultSet rows = statement.executeQuery()) {
+                                    while (rows.next()) {
+                                        events.add(
+                                                new OutboxEvent(
+                                                        rows.getLong(1),
+                                                        rows.getString(2),
+                                                        rows.getLong(3),
+                                                        rows.getString(4),
+                                                        rows.getTimestamp(5).toInstant()));
+                                    }
+                                }
+                                return events;
+                            }
+                        });
+    }
+
+    /** Deletes delivered events; by id, a claimed batch can have gaps where others hold locks. */
+    public int delete(List<Long> ids) {
+        return entityManager
+                .createNativeQuery("delete from outbox where id in (:ids)")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+}
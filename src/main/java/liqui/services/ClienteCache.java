@@ -0,0 +1,110 @@
+package liqui.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Optional;
+import java.util.function.Function;
+import liqui.config.ApplicationProperties;
+import liqui.entities.Cliente;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded read-through cache of clientes by id, with Caffeine's W-TinyLFU eviction. Misses are
+ * cached too, for a shorter time. Statistics are published as the {@code cache.*} meters tagged
+ * {@code cache=clientes}.
+ */
+@Component
+public class ClienteCache {
+
+    static final String CACHE_NAME = "clientes";
+
+    private final Cache<Long, Optional<Cliente>> cache;
+
+    public ClienteCache(ApplicationProperties properties, MeterRegistry meterRegistry) {
+        ApplicationProperties.Cache config = properties.getCache();
+        this.cache =
+                Caffeine.newBuilder()
+                        .maximumSize(config.getMaximumSize())
+                        .expireAfter(
+                                new PresenceAwareExpiry(
+                                        config.getTtl().toNanos(),
+                                        config.getNegativeTtl().toNanos()))
+                        .recordStats()
+                        .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public Optional<Cliente> get(Long id, Function<Long, Optional<Cliente>> loader) {
+        return cache.get(id, loader);
+    }
+
+    /** Version of the cached cliente, without loading anything on a miss. */
+    public Optional<Long> peekVersion(Long id) {
+        Optional<Cliente> cached = cache.getIfPresent(id);
+        return cached == null ? Optional.empty() : cached.map(Cliente::getVersion);
+    }
+
+    /**
+     * Drops the entry now and again once the current transaction completes, so that a reader
+     * loading the row before the commit cannot leave the old state behind.
+     */
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCompletion(int status) {
+                            cache.invalidate(id);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Drops the entry unless it holds {@code version} or a newer one. A {@code null} version, as
+     * sent for deletes, always drops it, and so does any version for a cached miss.
+     */
+    public void evictStale(Long id, Long version) {
+        cache.asMap()
+                .computeIfPresent(
+                        id,
+                        (key, cached) ->
+                                version != null
+                                                && cached.isPresent()
+                                                && cached.get().getVersion() != null
+                                                && cached.get().getVersion() >= version
+                                        ? cached
+                                        : null);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private record PresenceAwareExpiry(long ttlNanos, long negativeTtlNanos)
+            implements Expiry<Long, Optional<Cliente>> {
+
+        @Override
+        public long expireAfterCreate(Long id, Optional<Cliente> cliente, long currentTime) {
+            return cliente.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(
+                Long id, Optional<Cliente> cliente, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, cliente, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(
+                Long id, Optional<Cliente> cliente, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
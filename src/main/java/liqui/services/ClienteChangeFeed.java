@@ -0,0 +1,294 @@
+package liqui.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import liqui.config.ApplicationProperties;
+import liqui.exception.ServiceUnavailableException;
+import liqui.model.event.ClientesChangedEvent;
+import liqui.model.response.ClienteChange;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Committed {@link ClientesChangedEvent}s as server-sent events. Every change gets the next
+ * sequence number and goes into a ring buffer of the last {@code buffer-size} ones; a subscriber is
+ * only a position in that buffer, so an idle one costs no thread and no queue. On a change, a small
+ * pool of sender threads writes each subscriber what it has not seen yet, one drain at a time per
+ * subscriber. One that falls further behind than the buffer is disconnected, and resumes where it
+ * stopped if it reconnects with {@code Last-Event-ID} in time. A write blocked on a client that
+ * stopped reading holds its sender until the connector's write timeout fails it.
+ *
+ * <p>Event ids are {@code <epoch>-<sequence>}, the epoch telling this run apart from the previous
+ * ones. An id this run cannot resume from, one that left the buffer or comes from another run, gets
+ * a {@code reset} event first: what happened in between is lost and the listing must be reloaded.
+ * Like {@link ClienteSearchIndex}, only the writes of this instance are seen.
+ *
+ * <p>Stops before the web server, so that open streams do not hold up a graceful shutdown.
+ */
+@Slf4j
+@Component
+public class ClienteChangeFeed implements SmartLifecycle {
+
+    static final String RESET = "reset";
+
+    private static final int MAX_BATCH = 256;
+
+    private final ApplicationProperties.Changes config;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final ClienteChange[] ring;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Counter evicted;
+
+    /** Sequence number of the next change; guarded by {@code ring}. */
+    private long head = 1;
+
+    private volatile boolean running;
+    private ExecutorService senders;
+    private ScheduledExecutorService heartbeat;
+
+    public ClienteChangeFeed(ApplicationProperties properties, MeterRegistry meterRegistry) {
+        this.config = properties.getChanges();
+        this.ring = new ClienteChange[config.getBufferSize()];
+        Gauge.builder("changes.subscribers", subscribers, Set::size)
+                .description("Open GET /changes streams")
+                .register(meterRegistry);
+        this.evicted =
+                Counter.builder("changes.evicted")
+                        .description("Streams closed for falling behind the buffer")
+                        .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream starting after {@code lastEventId}, or with the next change when it is null.
+     *
+     * @throws ServiceUnavailableException when {@code max-subscribers} streams are open
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        if (!running) {
+            throw new ServiceUnavailableException(
+                    "The change feed is not available", config.getRetryDelay());
+        }
+        if (subscribers.size() >= config.getMaxSubscribers()) {
+            throw new ServiceUnavailableException(
+                    "Too many change feed subscribers", config.getRetryDelay());
+        }
+        SseEmitter emitter = new SseEmitter(config.getTimeout().toMillis());
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> subscribers.remove(subscriber));
+        synchronized (ring) {
+            // registered under the lock, so no change falls between the position and the stream
+            long resumeAt = resumePosition(lastEventId);
+            subscriber.next = resumeAt < 0 ? head : resumeAt;
+            subscriber.reset = resumeAt < 0 && lastEventId != null;
+            subscribers.add(subscriber);
+        }
+        schedule(subscriber);
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void onClientesChanged(ClientesChangedEvent event) {
+        List<ClienteChange> changes =
+                new ArrayList<>(event.saved().size() + event.deleted().size());
+        event.saved().forEach(cliente -> changes.add(ClienteChange.saved(cliente)));
+        event.deleted().forEach(id -> changes.add(ClienteChange.deleted(id)));
+        if (changes.isEmpty()) {
+            return;
+        }
+        synchronized (ring) {
+            for (ClienteChange change : changes) {
+                ring[(int) (head % ring.length)] = change;
+                head++;
+            }
+        }
+        subscribers.forEach(this::schedule);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        AtomicInteger threads = new AtomicInteger();
+        senders =
+                Executors.newFixedThreadPool(
+                        config.getSenders(),
+                        task -> daemon(task, "cliente-change-feed-" + threads.incrementAndGet()));
+        heartbeat =
+                Executors.newSingleThreadScheduledExecutor(
+                        task -> daemon(task, "cliente-change-feed-heartbeat"));
+        long period = config.getHeartbeat().toMillis();
+        heartbeat.scheduleAtFixedRate(this::heartbeat, period, period, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        heartbeat.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+        senders.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Position after {@code lastEventId}, or -1 when this run cannot resume from it. */
+    private long resumePosition(String lastEventId) {
+        if (lastEventId == null) {
+            return -1;
+        }
+        int dash = lastEventId.lastIndexOf('-');
+        if (dash < 0 || !lastEventId.substring(0, dash).equals(epoch)) {
+            return -1;
+        }
+        try {
+            long next = Long.parseLong(lastEventId.substring(dash + 1)) + 1;
+            return next > head || next < oldest() ? -1 : next;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private long oldest() {
+        return Math.max(1, head - ring.length);
+    }
+
+    /** Changes from {@code next} on, at most {@link #MAX_BATCH}; null when they left the buffer. */
+    private List<ClienteChange> changesFrom(long next) {
+        synchronized (ring) {
+            if (next < oldest()) {
+                return null;
+            }
+            int count = (int) Math.min(head - next, MAX_BATCH);
+            List<ClienteChange> changes = new ArrayList<>(count);
+            for (long sequence = next; sequence < next + count; sequence++) {
+                changes.add(ring[(int) (sequence % ring.length)]);
+            }
+            return changes;
+        }
+    }
+
+    private void heartbeat() {
+        subscribers.forEach(
+                subscriber -> {
+                    subscriber.heartbeatDue = true;
+                    schedule(subscriber);
+                });
+    }
+
+    /** Drains {@code subscriber} on a sender unless a drain is already running or pending. */
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.wip.getAndIncrement() == 0) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                // stopping
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        int missed = 1;
+        do {
+            if (!send(subscriber)) {
+                return;
+            }
+            missed = subscriber.wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /** Writes whatever {@code subscriber} has not seen yet; false once it is gone. */
+    private boolean send(Subscriber subscriber) {
+        SseEmitter emitter = subscriber.emitter;
+        try {
+            if (subscriber.reset) {
+                subscriber.reset = false;
+                emitter.send(
+                        SseEmitter.event()
+                                .id(eventId(subscriber.next - 1))
+                                .name(RESET)
+                                .data("Changes were missed, reload the clientes"));
+            }
+            while (true) {
+                List<ClienteChange> changes = changesFrom(subscriber.next);
+                if (changes == null) {
+                    evicted.increment();
+                    subscribers.remove(subscriber);
+                    emitter.complete();
+                    return false;
+                }
+                if (changes.isEmpty()) {
+                    break;
+                }
+                for (ClienteChange change : changes) {
+                    emitter.send(
+                            SseEmitter.event()
+                                    .id(eventId(subscriber.next++))
+                                    .name(change.type().value())
+                                    .data(change, MediaType.APPLICATION_JSON));
+                }
+            }
+            if (subscriber.heartbeatDue) {
+                subscriber.heartbeatDue = false;
+                emitter.send(SseEmitter.event().comment(""));
+            }
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // the client went away, or the stream completed meanwhile
+            log.debug("Dropping change feed subscriber: {}", e.getMessage());
+            subscribers.remove(subscriber);
+            return false;
+        }
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final AtomicInteger wip = new AtomicInteger();
+
+        /** Sequence number of the next change to send; only the draining sender touches it. */
+        private long next;
+
+        private volatile boolean reset;
+        private volatile boolean heartbeatDue;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
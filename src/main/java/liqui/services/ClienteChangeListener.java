@@ -0,0 +1,146 @@
+package liqui.services;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.regex.Pattern;
+import liqui.config.ApplicationProperties;
+import liqui.config.DatabasePlatform;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps {@link ClienteCache} coherent across replicas by {@code LISTEN}ing to the notifications of
+ * {@link ClienteChangeNotifier} on a dedicated connection, outside the pool. A notification evicts
+ * the entry unless it already holds that version or a newer one; {@code *} drops the whole cache.
+ * Every time the connection is (re)established the whole cache is dropped too, since notifications
+ * sent while no one was listening are lost.
+ */
+@Slf4j
+@Component
+public class ClienteChangeListener implements SmartLifecycle {
+
+    /** Payload that drops every cached cliente, for writes too large to notify row by row. */
+    public static final String ALL = "*";
+
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final int POLL_TIMEOUT_MILLIS = 1_000;
+
+    private final ClienteCache clienteCache;
+    private final DatabasePlatform databasePlatform;
+    private final DataSourceProperties dataSourceProperties;
+    private final ApplicationProperties.Cache.Coherence coherence;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public ClienteChangeListener(
+            ClienteCache clienteCache,
+            DatabasePlatform databasePlatform,
+            DataSourceProperties dataSourceProperties,
+            ApplicationProperties properties) {
+        this.clienteCache = clienteCache;
+        this.databasePlatform = databasePlatform;
+        this.dataSourceProperties = dataSourceProperties;
+        this.coherence = properties.getCache().getCoherence();
+        if (!CHANNEL.matcher(coherence.getChannel()).matches()) {
+            throw new IllegalStateException(
+                    "Invalid notification channel: " + coherence.getChannel());
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running || !coherence.isEnabled() || !databasePlatform.isPostgreSql()) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::listen, "cliente-change-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(POLL_TIMEOUT_MILLIS * 2L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection =
+                    DriverManager.getConnection(
+                            dataSourceProperties.determineUrl(),
+                            dataSourceProperties.determineUsername(),
+                            dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + coherence.getChannel());
+                }
+                clienteCache.invalidateAll();
+                log.info("Listening for cliente changes on channel {}", coherence.getChannel());
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications =
+                            pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            apply(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn(
+                            "Lost the cliente change listener connection, retrying in {}",
+                            coherence.getReconnectDelay(),
+                            e);
+                    clienteCache.invalidateAll();
+                    try {
+                        Thread.sleep(coherence.getReconnectDelay().toMillis());
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    void apply(String payload) {
+        if (ALL.equals(payload)) {
+            clienteCache.invalidateAll();
+            return;
+        }
+        try {
+            int separator = payload.indexOf(':');
+            if (separator < 0) {
+                clienteCache.evictStale(Long.valueOf(payload), null);
+            } else {
+                clienteCache.evictStale(
+                        Long.valueOf(payload.substring(0, separator)),
+                        Long.valueOf(payload.substring(separator + 1)));
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed cliente change notification '{}'", payload);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package liqui.services;
+
+import jakarta.persistence.EntityManager;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import liqui.config.ApplicationProperties;
+import liqui.config.DatabasePlatform;
+import liqui.entities.Cliente;
+import org.hibernate.Session;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tells the other replicas which clientes the current transaction wrote, with one {@code pg_notify}
+ * per row sent right before the commit. PostgreSQL delivers the notifications only if the
+ * transaction commits, so a rolled back write never evicts anything. The payload is {@code
+ * id:version} for a write and the bare {@code id} for a delete; see {@link ClienteChangeListener}.
+ */
+@Component
+public class ClienteChangeNotifier {
+
+    private final EntityManager entityManager;
+    private final DatabasePlatform databasePlatform;
+    private final ApplicationProperties.Cache.Coherence coherence;
+
+    public ClienteChangeNotifier(
+            EntityManager entityManager,
+            DatabasePlatform databasePlatform,
+            ApplicationProperties properties) {
+        this.entityManager = entityManager;
+        this.databasePlatform = databasePlatform;
+        this.coherence = properties.getCache().getCoherence();
+    }
+
+    /** The version is read at commit time, once Hibernate has flushed the increment. */
+    public void changed(Cliente cliente) {
+        Changes changes = currentChanges();
+        if (changes != null) {
+            changes.changed.put(cliente.getId(), cliente);
+        }
+    }
+
+    public void deleted(Long id) {
+        Changes changes = currentChanges();
+        if (changes != null) {
+            changes.changed.remove(id);
+            changes.deleted.add(id);
+        }
+    }
+
+    private Changes currentChanges() {
+        if (!coherence.isEnabled()
+                || !TransactionSynchronizationManager.isActualTransactionActive()
+                || !databasePlatform.isPostgreSql()) {
+            return null;
+        }
+        Changes changes = (Changes) TransactionSynchronizationManager.getResource(this);
+        if (changes == null) {
+            changes = new Changes();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(changes);
+        }
+        return changes;
+    }
+
+    private final class Changes implements TransactionSynchronization {
+
+        private final Map<Long, Cliente> changed = new LinkedHashMap<>();
+        private final Set<Long> deleted = new HashSet<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            entityManager.flush();
+            List<String> payloads = new ArrayList<>(changed.size() + deleted.size());
+            changed.forEach(
+                    (id, cliente) ->
+                            payloads.add(
+                                    id
+                                            + ":"
+                                            + (cliente.getVersion() == null
+                                                    ? 0
+                                                    : cliente.getVersion())));
+            deleted.forEach(id -> payloads.add(id.toString()));
+            if (payloads.isEmpty()) {
+                return;
+            }
+            entityManager
+                    .unwrap(Session.class)
+                    .doWork(
+                            connection -> {
+                                Array array = connection.createArrayOf("text", payloads.toArray());
+                                try (PreparedStatement statement =
+                                        connection.prepareStatement(
+                                                "select pg_notify(?, payload)"
+                                                        + " from unnest(?) as payload")) {
+                                    statement.setString(1, coherence.getChannel());
+                                    statement.setArray(2, array);
+                                    statement.execute();
+                                } finally {
+                                    array.free();
+                                }
+                            });
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ClienteChangeNotifier.this);
+        }
+    }
+}
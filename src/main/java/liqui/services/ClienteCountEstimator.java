@@ -0,0 +1,44 @@
+package liqui.services;
+
+import liqui.config.ApplicationProperties;
+import liqui.repositories.ClienteRepository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cheap approximation of the number of clientes: the PostgreSQL planner estimate, otherwise an
+ * exact count refreshed at most once per {@code application.pagination.count-cache-ttl}.
+ */
+@Component
+public class ClienteCountEstimator {
+
+    private final ClienteRepository clienteRepository;
+    private final ApplicationProperties properties;
+
+    private volatile CachedCount cachedCount;
+
+    public ClienteCountEstimator(
+            ClienteRepository clienteRepository, ApplicationProperties properties) {
+        this.clienteRepository = clienteRepository;
+        this.properties = properties;
+    }
+
+    public long estimate() {
+        Long estimate = clienteRepository.estimateCount();
+        if (estimate != null) {
+            return estimate;
+        }
+        long now = System.nanoTime();
+        CachedCount current = cachedCount;
+        if (current == null || now - current.takenAt() > ttlNanos()) {
+            current = new CachedCount(clienteRepository.count(), now);
+            cachedCount = current;
+        }
+        return current.count();
+    }
+
+    private long ttlNanos() {
+        return properties.getPagination().getCountCacheTtl().toNanos();
+    }
+
+    private record CachedCount(long count, long takenAt) {}
+}
@@ -0,0 +1,133 @@
+package liqui.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import liqui.config.ApplicationProperties;
+import liqui.config.ClienteJsonCacheConfig;
+import liqui.entities.Cliente;
+import liqui.model.query.DataFormat;
+import liqui.repositories.ClienteRepository;
+import liqui.utils.CsvUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Writes every cliente to an output stream while holding only one fetch batch in memory: rows come
+ * from a database cursor and the persistence context is cleared as the export goes.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ClienteExportService {
+
+    private final ClienteRepository clienteRepository;
+    private final EntityManager entityManager;
+    private final ObjectWriter rowWriter;
+    private final ApplicationProperties properties;
+
+    public ClienteExportService(
+            ClienteRepository clienteRepository,
+            EntityManager entityManager,
+            ObjectMapper objectMapper,
+            ApplicationProperties properties) {
+        this.clienteRepository = clienteRepository;
+        this.entityManager = entityManager;
+        this.rowWriter =
+                objectMapper
+                        .writerFor(Cliente.class)
+                        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                        // a full export would only push the hot clientes out of the cache
+                        .withAttribute(ClienteJsonCacheConfig.BYPASS, Boolean.TRUE);
+        this.properties = properties;
+    }
+
+    public long exportClientes(DataFormat format, OutputStream outputStream) throws IOException {
+        int clearInterval = properties.getExport().getClearInterval();
+        long count = 0;
+        try (Stream<Cliente> clientes =
+                        clienteRepository.streamAll(properties.getExport().getFetchSize());
+                RowWriter writer = rowWriter(format, outputStream)) {
+            Iterator<Cliente> iterator = clientes.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+                if (++count % clearInterval == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        return count;
+    }
+
+    private RowWriter rowWriter(DataFormat format, OutputStream outputStream) throws IOException {
+        return switch (format) {
+            case NDJSON -> new NdjsonRowWriter(rowWriter, outputStream);
+            case CSV -> new CsvRowWriter(outputStream);
+        };
+    }
+
+    private interface RowWriter extends AutoCloseable {
+        void write(Cliente cliente) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static final class NdjsonRowWriter implements RowWriter {
+        private final ObjectWriter objectWriter;
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(ObjectWriter objectWriter, OutputStream outputStream) throws IOException {
+            this.objectWriter = objectWriter;
+            this.generator = objectWriter.createGenerator(outputStream);
+            // the response stream is owned by the container
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // lines are terminated explicitly instead of the default space between root values
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(Cliente cliente) throws IOException {
+            objectWriter.writeValue(generator, cliente);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream outputStream) throws IOException {
+            this.writer =
+                    new BufferedWriter(
+                            new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            writer.write("id,text\r\n");
+        }
+
+        @Override
+        public void write(Cliente cliente) throws IOException {
+            writer.write(String.valueOf(cliente.getId()));
+            writer.write(',');
+            writer.write(CsvUtils.escape(cliente.getText()));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package liqui.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import liqui.config.ApplicationProperties;
+import liqui.entities.Cliente;
+import liqui.exception.BadRequestException;
+import liqui.model.query.DataFormat;
+import liqui.model.response.BatchItemResult;
+import liqui.model.response.BatchResult;
+import liqui.model.response.ImportJobStatus;
+import liqui.model.response.ImportJobStatus.State;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Imports clientes from an NDJSON or CSV body in constant memory. The request thread parses the
+ * body row by row into chunks; a writer thread persists the chunks through {@link
+ * ClienteService#saveAll}, one transaction per chunk. The two meet in a bounded queue, so a slow
+ * database stops the parser, and with it the reading of the socket.
+ */
+@Service
+@Slf4j
+public class ClienteImportService implements DisposableBean {
+
+    private static final Chunk END_OF_INPUT = new Chunk(List.of(), List.of());
+
+    private final ClienteService clienteService;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper;
+    private final ApplicationProperties.BulkImport config;
+    private final ThreadPoolTaskExecutor writerExecutor;
+    private final Map<UUID, ImportJob> jobs;
+
+    public ClienteImportService(
+            ClienteService clienteService,
+            ObjectMapper objectMapper,
+            ApplicationProperties properties,
+            TaskExecutorBuilder taskExecutorBuilder) {
+        this.clienteService = clienteService;
+        this.objectMapper = objectMapper;
+        this.csvMapper =
+                CsvMapper.builder()
+                        .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                        .build();
+        this.config = properties.getBulkImport();
+        this.writerExecutor =
+                taskExecutorBuilder
+                        .corePoolSize(config.getMaxConcurrent())
+                        .maxPoolSize(config.getMaxConcurrent())
+                        .threadNamePrefix("import-writer-")
+                        .build();
+        this.writerExecutor.initialize();
+        this.jobs =
+                Collections.synchronizedMap(
+                        new LinkedHashMap<>() {
+                            @Override
+                            protected boolean removeEldestEntry(Map.Entry<UUID, ImportJob> eldest) {
+                                return size() > config.getRetainedJobs()
+                                        && eldest.getValue().state != State.RUNNING;
+                            }
+                        });
+    }
+
+    public ImportJobStatus importClientes(DataFormat format, InputStream inputStream) {
+        return importClientes(UUID.randomUUID(), format, inputStream);
+    }
+
+    /**
+     * Imports under {@code jobId}, chosen by the caller: the job is registered before the first row
+     * is read, so {@link #findImportJob} reports its progress while this call is still running.
+     */
+    public ImportJobStatus importClientes(UUID jobId, DataFormat format, InputStream inputStream) {
+        ImportJob job = new ImportJob(jobId, format, config.getMaxErrors());
+        if (jobs.putIfAbsent(job.id, job) != null) {
+            throw new BadRequestException("Import " + jobId + " already exists");
+        }
+
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        Future<?> writer = writerExecutor.submit(() -> write(job, queue));
+        try (MappingIterator<Cliente> rows = reader(format, inputStream)) {
+            Chunk chunk = new Chunk(new ArrayList<>(), new ArrayList<>());
+            long row = 0;
+            while (rows.hasNextValue()) {
+                row++;
+                job.rowsRead.incrementAndGet();
+                try {
+                    chunk.clientes().add(rows.nextValue());
+                    chunk.rows().add(row);
+                } catch (JsonMappingException e) {
+                    // the row is well-formed but does not bind; the iterator skips over it
+                    job.reject(row, e.getOriginalMessage());
+                    continue;
+                }
+                if (chunk.clientes().size() == config.getChunkSize()) {
+                    handOff(queue, chunk, writer);
+                    chunk = new Chunk(new ArrayList<>(), new ArrayList<>());
+                }
+            }
+            if (!chunk.clientes().isEmpty()) {
+                handOff(queue, chunk, writer);
+            }
+            handOff(queue, END_OF_INPUT, writer);
+            writer.get();
+            job.finish(State.COMPLETED, null);
+        } catch (JsonProcessingException e) {
+            finishAfterWriter(job, queue, writer, "Malformed input: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            finishAfterWriter(job, queue, writer, "Reading input failed: " + e.getMessage());
+        } catch (ExecutionException e) {
+            job.finish(State.FAILED, "Writing failed: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writer.cancel(true);
+            job.finish(State.FAILED, "Import interrupted");
+        }
+        log.info("Import {} finished: {}", job.id, job.status());
+        return job.status();
+    }
+
+    public Optional<ImportJobStatus> findImportJob(UUID jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(ImportJob::status);
+    }
+
+    public List<ImportJobStatus> findImportJobs() {
+        synchronized (jobs) {
+            return jobs.values().stream().map(ImportJob::status).toList();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        writerExecutor.shutdown();
+    }
+
+    private MappingIterator<Cliente> reader(DataFormat format, InputStream inputStream)
+            throws IOException {
+        return switch (format) {
+            case NDJSON -> objectMapper.readerFor(Cliente.class).readValues(inputStream);
+            case CSV -> csvMapper
+                    .readerFor(Cliente.class)
+                    .with(CsvSchema.emptySchema().withHeader())
+                    .readValues(inputStream);
+        };
+    }
+
+    private void handOff(BlockingQueue<Chunk> queue, Chunk chunk, Future<?> writer)
+            throws InterruptedException, ExecutionException {
+        while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            if (writer.isDone()) {
+                // the writer stopped early, surface its failure instead of blocking forever
+                writer.get();
+            }
+        }
+    }
+
+    private void finishAfterWriter(
+            ImportJob job, BlockingQueue<Chunk> queue, Future<?> writer, String error) {
+        try {
+            handOff(queue, END_OF_INPUT, writer);
+            writer.get();
+        } catch (ExecutionException e) {
+            log.warn("Import {} writer failed after input error", job.id, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writer.cancel(true);
+        }
+        job.finish(State.FAILED, error);
+    }
+
+    private void write(ImportJob job, BlockingQueue<Chunk> queue) {
+        try {
+            for (Chunk chunk = queue.take(); chunk != END_OF_INPUT; chunk = queue.take()) {
+                BatchResult result = clienteService.saveAll(chunk.clientes());
+                job.accepted.addAndGet(result.accepted());
+                for (BatchItemResult item : result.items()) {
+                    if (item.status() == BatchItemResult.Status.REJECTED) {
+                        job.reject(
+                                chunk.rows().get(item.index()),
+                                item.violations().stream()
+                                        .map(v -> v.field() + ": " + v.message())
+                                        .collect(Collectors.joining("; ")));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Chunk(List<Cliente> clientes, List<Long> rows) {}
+
+    private static final class ImportJob {
+        private final UUID id;
+        private final DataFormat format;
+        private final int maxErrors;
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong accepted = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        private volatile State state = State.RUNNING;
+        private volatile Instant finishedAt;
+
+        ImportJob(UUID id, DataFormat format, int maxErrors) {
+            this.id = id;
+            this.format = format;
+            this.maxErrors = maxErrors;
+        }
+
+        void reject(long row, String error) {
+            rejected.incrementAndGet();
+            addError("row " + row + ": " + error);
+        }
+
+        void finish(State state, String error) {
+            if (error != null) {
+                addError(error);
+            }
+            this.finishedAt = Instant.now();
+            this.state = state;
+        }
+
+        private void addError(String error) {
+            synchronized (errors) {
+                if (errors.size() < maxErrors) {
+                    errors.add(error);
+                }
+            }
+        }
+
+        ImportJobStatus status() {
+            synchronized (errors) {
+                return new ImportJobStatus(
+                        id,
+                        format,
+                        state,
+                        rowsRead.get(),
+                        accepted.get(),
+                        rejected.get(),
+                        startedAt,
+                        finishedAt,
+                        List.copyOf(errors));
+            }
+        }
+    }
+}
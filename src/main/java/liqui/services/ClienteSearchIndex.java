@@ -0,0 +1,155 @@
+package liqui.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import liqui.config.ApplicationProperties;
+import liqui.config.DatabasePlatform;
+import liqui.entities.Cliente;
+import liqui.model.event.ClientesChangedEvent;
+import liqui.model.query.SearchCursor;
+import liqui.model.query.SearchQuery;
+import liqui.repositories.ClienteRepository;
+import liqui.repositories.ClienteSearchHit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * In-memory inverted index of {@code text}, standing in for the PostgreSQL text search index on the
+ * other databases (the H2 of the default profile). Built when the application is ready and kept
+ * current from committed {@link ClientesChangedEvent}s; it only sees the writes of this instance.
+ * Terms live in a sorted map, so a prefix is a range scan and a search costs the matches, not the
+ * table.
+ */
+@Slf4j
+@Component
+public class ClienteSearchIndex {
+
+    private final NavigableMap<String, Set<Long>> postings = new ConcurrentSkipListMap<>();
+    private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+
+    private final ClienteRepository clienteRepository;
+    private final DatabasePlatform databasePlatform;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationProperties properties;
+
+    public ClienteSearchIndex(
+            ClienteRepository clienteRepository,
+            DatabasePlatform databasePlatform,
+            PlatformTransactionManager transactionManager,
+            ApplicationProperties properties) {
+        this.clienteRepository = clienteRepository;
+        this.databasePlatform = databasePlatform;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (databasePlatform.isPostgreSql()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(
+                status -> {
+                    try (Stream<Cliente> clientes =
+                            clienteRepository.streamAll(properties.getExport().getFetchSize())) {
+                        clientes.forEach(this::index);
+                    }
+                });
+        log.info("Indexed {} clientes for in-memory search", documents.size());
+    }
+
+    @TransactionalEventListener
+    public void onClientesChanged(ClientesChangedEvent event) {
+        if (databasePlatform.isPostgreSql()) {
+            return;
+        }
+        event.saved().forEach(this::index);
+        event.deleted().forEach(this::remove);
+    }
+
+    synchronized void index(Cliente cliente) {
+        remove(cliente.getId());
+        List<String> tokens = SearchQuery.tokenize(cliente.getText());
+        documents.put(
+                cliente.getId(),
+                new Document(
+                        new Cliente(cliente.getId(), cliente.getText(), cliente.getVersion()),
+                        tokens));
+        for (String token : new HashSet<>(tokens)) {
+            postings.computeIfAbsent(token, key -> ConcurrentHashMap.newKeySet())
+                    .add(cliente.getId());
+        }
+    }
+
+    synchronized void remove(Long id) {
+        Document document = documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        for (String token : document.tokens()) {
+            Set<Long> ids = postings.get(token);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                postings.remove(token);
+            }
+        }
+    }
+
+    /** Same contract as {@code ClienteRepository.search}; the rank is the share of words hit. */
+    public List<ClienteSearchHit> search(SearchQuery query, SearchCursor after, int limit) {
+        Set<Long> candidates = null;
+        for (String term : query.terms()) {
+            Set<Long> matches = new HashSet<>();
+            postings.subMap(term, true, term + Character.MAX_VALUE, true)
+                    .values()
+                    .forEach(matches::addAll);
+            if (candidates == null) {
+                candidates = matches;
+            } else {
+                candidates.retainAll(matches);
+            }
+            if (candidates.isEmpty()) {
+                return List.of();
+            }
+        }
+        List<ClienteSearchHit> hits = new ArrayList<>(candidates.size());
+        for (Long id : candidates) {
+            Document document = documents.get(id);
+            if (document == null) {
+                continue;
+            }
+            float rank = document.rank(query);
+            if (after == null || after.precedes(rank, id)) {
+                hits.add(new ClienteSearchHit(document.cliente(), rank));
+            }
+        }
+        return hits.stream()
+                .sorted(
+                        Comparator.comparing(ClienteSearchHit::rank)
+                                .reversed()
+                                .thenComparing(hit -> hit.cliente().getId()))
+                .limit(limit)
+                .toList();
+    }
+
+    private record Document(Cliente cliente, List<String> tokens) {
+
+        float rank(SearchQuery query) {
+            long hits = tokens.stream().filter(query::matches).count();
+            return tokens.isEmpty() ? 0f : (float) hits / tokens.size();
+        }
+    }
+}
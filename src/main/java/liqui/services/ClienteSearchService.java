@@ -0,0 +1,62 @@
+package liqui.services;
+
+import java.util.List;
+import liqui.config.ApplicationProperties;
+import liqui.config.DatabasePlatform;
+import liqui.entities.Cliente;
+import liqui.model.query.SearchCursor;
+import liqui.model.query.SearchQuery;
+import liqui.model.response.CursorResult;
+import liqui.repositories.ClienteRepository;
+import liqui.repositories.ClienteSearchHit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Ranked prefix search over {@code text}, paginated by a (rank, id) keyset: PostgreSQL full-text
+ * search when available, {@link ClienteSearchIndex} otherwise.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ClienteSearchService {
+
+    private final ClienteRepository clienteRepository;
+    private final ClienteSearchIndex clienteSearchIndex;
+    private final DatabasePlatform databasePlatform;
+    private final ApplicationProperties.Pagination pagination;
+
+    public ClienteSearchService(
+            ClienteRepository clienteRepository,
+            ClienteSearchIndex clienteSearchIndex,
+            DatabasePlatform databasePlatform,
+            ApplicationProperties properties) {
+        this.clienteRepository = clienteRepository;
+        this.clienteSearchIndex = clienteSearchIndex;
+        this.databasePlatform = databasePlatform;
+        this.pagination = properties.getPagination();
+    }
+
+    public CursorResult<Cliente> searchClientes(String q, String after, int requestedPageSize) {
+        int pageSize = pagination.capPageSize(requestedPageSize);
+        SearchQuery query = SearchQuery.parse(q);
+        SearchCursor cursor = after == null || after.isBlank() ? null : SearchCursor.decode(after);
+
+        // fetch one extra hit to know whether there is a next page
+        List<ClienteSearchHit> hits =
+                databasePlatform.isPostgreSql()
+                        ? clienteRepository.search(query, cursor, pageSize + 1)
+                        : clienteSearchIndex.search(query, cursor, pageSize + 1);
+        boolean hasNext = hits.size() > pageSize;
+        List<ClienteSearchHit> page = hasNext ? hits.subList(0, pageSize) : hits;
+        String nextCursor = null;
+        if (hasNext) {
+            ClienteSearchHit last = page.get(page.size() - 1);
+            nextCursor = new SearchCursor(last.rank(), last.cliente().getId()).encode();
+        }
+        return new CursorResult<>(
+                page.stream().map(ClienteSearchHit::cliente).toList(),
+                pageSize,
+                nextCursor,
+                hasNext);
+    }
+}
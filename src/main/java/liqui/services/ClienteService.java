@@ -1,51 +1,411 @@
 package liqui.services;
 
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import liqui.config.ApplicationProperties;
+import liqui.config.DatabasePlatform;
+import liqui.config.coalescing.Coalesced;
+import liqui.config.logging.Loggable;
 import liqui.entities.Cliente;
+import liqui.exception.BadRequestException;
+import liqui.exception.PreconditionFailedException;
+import liqui.model.event.ClientesChangedEvent;
+import liqui.model.query.ClienteCursor;
+import liqui.model.query.ClienteField;
+import liqui.model.query.CountStrategy;
+import liqui.model.query.FindClientesQuery;
+import liqui.model.query.SortableField;
+import liqui.model.request.ClientePatch;
+import liqui.model.response.BatchItemResult;
+import liqui.model.response.BatchItemResult.Violation;
+import liqui.model.response.BatchResult;
+import liqui.model.response.ClienteView;
+import liqui.model.response.CursorResult;
 import liqui.model.response.PagedResult;
 import liqui.repositories.ClienteRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @Transactional
+@Loggable
 public class ClienteService {
 
     private final ClienteRepository clienteRepository;
+    private final ClienteCountEstimator clienteCountEstimator;
+    private final ClienteCache clienteCache;
+    private final ClienteChangeNotifier clienteChangeNotifier;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final DatabasePlatform databasePlatform;
+    private final ApplicationProperties properties;
+    private final TransactionTemplate primaryReads;
 
     @Autowired
-    public ClienteService(ClienteRepository clienteRepository) {
+    public ClienteService(
+            ClienteRepository clienteRepository,
+            ClienteCountEstimator clienteCountEstimator,
+            ClienteCache clienteCache,
+            ClienteChangeNotifier clienteChangeNotifier,
+            ApplicationEventPublisher eventPublisher,
+            EntityManager entityManager,
+            Validator validator,
+            DatabasePlatform databasePlatform,
+            ApplicationProperties properties,
+            PlatformTransactionManager transactionManager) {
         this.clienteRepository = clienteRepository;
+        this.clienteCountEstimator = clienteCountEstimator;
+        this.clienteCache = clienteCache;
+        this.clienteChangeNotifier = clienteChangeNotifier;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
+        this.validator = validator;
+        this.databasePlatform = databasePlatform;
+        this.properties = properties;
+        // read-write, so that the repository joins it rather than routing to the replica
+        this.primaryReads = new TransactionTemplate(transactionManager);
     }
 
-    public PagedResult<Cliente> findAllClientes(
-            int pageNo, int pageSize, String sortBy, String sortDir) {
-        Sort sort =
-                sortDir.equalsIgnoreCase(Sort.Direction.ASC.name())
-                        ? Sort.by(sortBy).ascending()
-                        : Sort.by(sortBy).descending();
+    /**
+     * Only {@link SortableField}s are accepted, ordered with {@code id} as tie-breaker so that the
+     * page is read in index order. Concurrent requests for the same page share one query.
+     */
+    @Coalesced
+    @Transactional(readOnly = true)
+    public PagedResult<Cliente> findAllClientes(FindClientesQuery findClientesQuery) {
+        Pageable pageable = pageable(findClientesQuery);
+        return switch (findClientesQuery.countStrategy()) {
+            case EXACT -> new PagedResult<>(clienteRepository.findAll(pageable));
+            case NONE -> new PagedResult<>(
+                    clienteRepository.findAllBy(pageable), null, CountStrategy.NONE);
+            case ESTIMATE -> new PagedResult<>(
+                    clienteRepository.findAllBy(pageable),
+                    clienteCountEstimator.estimate(),
+                    CountStrategy.ESTIMATE);
+        };
+    }
+
+    /**
+     * Same page as {@link #findAllClientes} with only {@code fields} selected, read as values that
+     * the persistence context never holds.
+     */
+    @Transactional(readOnly = true)
+    public PagedResult<ClienteView> findClienteViews(
+            FindClientesQuery findClientesQuery, Set<ClienteField> fields) {
+        Pageable pageable = pageable(findClientesQuery);
+        Slice<ClienteView> slice = clienteRepository.findViews(fields, pageable);
+        // like findAll, EXACT only counts when the page itself does not tell the total
+        return switch (findClientesQuery.countStrategy()) {
+            case EXACT -> new PagedResult<>(
+                    PageableExecutionUtils.getPage(
+                            slice.getContent(), pageable, clienteRepository::count));
+            case NONE -> new PagedResult<>(slice, null, CountStrategy.NONE);
+            case ESTIMATE -> new PagedResult<>(
+                    slice, clienteCountEstimator.estimate(), CountStrategy.ESTIMATE);
+        };
+    }
+
+    @Transactional(readOnly = true)
+    public CursorResult<Cliente> findClientesAfter(
+            String after, int requestedPageSize, String sortBy, String sortDir) {
+        ClienteCursor cursor =
+                after == null || after.isBlank() ? null : ClienteCursor.decode(after);
+        SortableField field = SortableField.from(cursor != null ? cursor.sortBy() : sortBy);
+        String property = field.property();
+        Sort.Direction direction = cursor != null ? cursor.direction() : direction(sortDir);
+        int pageSize = properties.getPagination().capPageSize(requestedPageSize);
+
+        // fetch one extra row to know whether there is a next page without counting
+        List<Cliente> rows =
+                clienteRepository.findPageAfter(property, direction, cursor, pageSize + 1);
+        boolean hasNext = rows.size() > pageSize;
+        List<Cliente> data = hasNext ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            Cliente last = data.get(data.size() - 1);
+            Object key = field == SortableField.ID ? last.getId() : last.getText();
+            nextCursor = new ClienteCursor(property, direction, key, last.getId()).encode();
+        }
+        return new CursorResult<>(data, pageSize, nextCursor, hasNext);
+    }
 
-        // create Pageable instance
-        Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
-        Page<Cliente> clientesPage = clienteRepository.findAll(pageable);
+    /**
+     * {@link #findClientesAfter} with only {@code fields} in each element. The text is read to make
+     * the next cursor when the page is sorted by it, and left out again if not asked for.
+     */
+    @Transactional(readOnly = true)
+    public CursorResult<ClienteView> findClienteViewsAfter(
+            String after,
+            int requestedPageSize,
+            String sortBy,
+            String sortDir,
+            Set<ClienteField> fields) {
+        ClienteCursor cursor =
+                after == null || after.isBlank() ? null : ClienteCursor.decode(after);
+        SortableField field = SortableField.from(cursor != null ? cursor.sortBy() : sortBy);
+        String property = field.property();
+        Sort.Direction direction = cursor != null ? cursor.direction() : direction(sortDir);
+        int pageSize = properties.getPagination().capPageSize(requestedPageSize);
+        boolean byText = field == SortableField.TEXT;
+        Set<ClienteField> read = EnumSet.copyOf(fields);
+        if (byText) {
+            read.add(ClienteField.TEXT);
+        }
 
-        return new PagedResult<>(clientesPage);
+        List<ClienteView> rows =
+                clienteRepository.findViewsAfter(read, property, direction, cursor, pageSize + 1);
+        boolean hasNext = rows.size() > pageSize;
+        List<ClienteView> data = hasNext ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            ClienteView last = data.get(data.size() - 1);
+            Object key = byText ? last.text() : last.id();
+            nextCursor = new ClienteCursor(property, direction, key, last.id()).encode();
+        }
+        if (byText && !fields.contains(ClienteField.TEXT)) {
+            data =
+                    data.stream()
+                            .map(view -> new ClienteView(view.id(), null, view.version()))
+                            .toList();
+        }
+        return new CursorResult<>(data, pageSize, nextCursor, hasNext);
     }
 
+    /**
+     * Served from {@link ClienteCache}; only a miss opens a transaction, a read-write one so that
+     * it reads the primary: a cliente read from a lagging replica would stay cached, stale, for the
+     * whole TTL.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Optional<Cliente> findClienteById(Long id) {
-        return clienteRepository.findById(id);
+        return clienteCache.get(
+                id, key -> primaryReads.execute(status -> clienteRepository.findById(key)));
+    }
+
+    /**
+     * Current version of a cliente, for conditional requests: from {@link ClienteCache} when
+     * cached, otherwise from a query on the primary that reads the version column only.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Optional<Long> findClienteVersion(Long id) {
+        return clienteCache
+                .peekVersion(id)
+                .or(() -> primaryReads.execute(status -> clienteRepository.findVersionById(id)));
     }
 
     public Cliente saveCliente(Cliente cliente) {
-        return clienteRepository.save(cliente);
+        Cliente savedCliente = clienteRepository.save(cliente);
+        clienteCache.invalidate(savedCliente.getId());
+        clienteChangeNotifier.changed(savedCliente);
+        eventPublisher.publishEvent(ClientesChangedEvent.saved(savedCliente));
+        return savedCliente;
+    }
+
+    /**
+     * One {@code UPDATE ... RETURNING} statement; the version in its WHERE clause makes a non-null
+     * {@code expectedVersion} an atomic check. Only a failed check costs a second statement, to
+     * tell a stale version from a missing cliente.
+     */
+    public Optional<Cliente> updateCliente(Long id, Cliente cliente, Long expectedVersion) {
+        Optional<Cliente> updated =
+                clienteRepository.updateText(id, cliente.getText(), expectedVersion);
+        if (updated.isEmpty()) {
+            if (expectedVersion != null && clienteRepository.findVersionById(id).isPresent()) {
+                throw new PreconditionFailedException(
+                        "Cliente " + id + " is no longer at version " + expectedVersion);
+            }
+            return updated;
+        }
+        clienteCache.invalidate(id);
+        clienteChangeNotifier.changed(updated.get());
+        eventPublisher.publishEvent(ClientesChangedEvent.saved(updated.get()));
+        return updated;
+    }
+
+    /** Applies the fields present in {@code patch}; without any, the cliente is left untouched. */
+    public Optional<Cliente> patchCliente(Long id, ClientePatch patch, Long expectedVersion) {
+        if (patch.text() != null) {
+            return updateCliente(id, new Cliente(id, patch.text()), expectedVersion);
+        }
+        Optional<Cliente> current = findClienteById(id);
+        if (expectedVersion != null
+                && current.isPresent()
+                && !expectedVersion.equals(current.get().getVersion())) {
+            throw new PreconditionFailedException(
+                    "Cliente " + id + " is no longer at version " + expectedVersion);
+        }
+        return current;
+    }
+
+    /**
+     * Inserts clientes accepted by {@link ClienteWriteBehindQueue}, whose ids were allocated when
+     * they were queued.
+     */
+    public void insertQueued(List<Cliente> clientes) {
+        clienteRepository.insertAll(clientes);
+        for (Cliente cliente : clientes) {
+            cliente.setVersion(0L);
+            // a read before the insert may have cached the id as missing
+            clienteCache.invalidate(cliente.getId());
+            clienteChangeNotifier.changed(cliente);
+        }
+        eventPublisher.publishEvent(new ClientesChangedEvent(clientes, List.of()));
+    }
+
+    /**
+     * Validates every element on its own, then inserts the new ones and updates the ones carrying
+     * an id, flushing and clearing every {@code application.batch.chunk-size} elements so that
+     * Hibernate sends JDBC batches. With enough new elements on PostgreSQL they go through COPY.
+     */
+    public BatchResult saveAll(List<Cliente> clientes) {
+        ApplicationProperties.Batch batch = properties.getBatch();
+        if (clientes.size() > batch.getMaxItems()) {
+            throw new BadRequestException(
+                    "Batch of " + clientes.size() + " exceeds the limit of " + batch.getMaxItems());
+        }
+
+        BatchItemResult[] results = new BatchItemResult[clientes.size()];
+        List<Integer> valid = new ArrayList<>(clientes.size());
+        for (int i = 0; i < clientes.size(); i++) {
+            Cliente cliente = clientes.get(i);
+            if (cliente == null) {
+                results[i] =
+                        BatchItemResult.rejected(
+                                i, null, List.of(new Violation(null, "Cliente cannot be null")));
+                continue;
+            }
+            Set<ConstraintViolation<Cliente>> violations = validator.validate(cliente);
+            if (violations.isEmpty()) {
+                valid.add(i);
+            } else {
+                results[i] =
+                        BatchItemResult.rejected(
+                                i,
+                                cliente.getId(),
+                                violations.stream()
+                                        .map(
+                                                violation ->
+                                                        new Violation(
+                                                                violation
+                                                                        .getPropertyPath()
+                                                                        .toString(),
+                                                                violation.getMessage()))
+                                        .toList());
+            }
+        }
+
+        long newClientes = valid.stream().filter(i -> clientes.get(i).getId() == null).count();
+        boolean copy =
+                batch.getCopyThreshold() > 0
+                        && newClientes >= batch.getCopyThreshold()
+                        && databasePlatform.isPostgreSql();
+        List<Integer> copied = new ArrayList<>();
+        List<Cliente> saved = new ArrayList<>(valid.size());
+        for (int from = 0; from < valid.size(); from += batch.getChunkSize()) {
+            List<Integer> chunk =
+                    valid.subList(from, Math.min(from + batch.getChunkSize(), valid.size()));
+            Map<Long, Cliente> existing =
+                    clienteRepository
+                            .findAllById(
+                                    chunk.stream()
+                                            .map(i -> clientes.get(i).getId())
+                                            .filter(Objects::nonNull)
+                                            .toList())
+                            .stream()
+                            .collect(Collectors.toMap(Cliente::getId, Function.identity()));
+            for (int i : chunk) {
+                Cliente cliente = clientes.get(i);
+                if (cliente.getId() == null) {
+                    cliente.setVersion(null);
+                    if (copy) {
+                        copied.add(i);
+                    } else {
+                        entityManager.persist(cliente);
+                        clienteChangeNotifier.changed(cliente);
+                        saved.add(cliente);
+                        results[i] = BatchItemResult.created(i, cliente.getId());
+                    }
+                } else if (existing.containsKey(cliente.getId())) {
+                    Cliente managed = existing.get(cliente.getId());
+                    managed.setText(cliente.getText());
+                    clienteChangeNotifier.changed(managed);
+                    saved.add(managed);
+                    results[i] = BatchItemResult.updated(i, cliente.getId());
+                } else {
+                    results[i] =
+                            BatchItemResult.rejected(
+                                    i,
+                                    cliente.getId(),
+                                    List.of(new Violation("id", "Cliente not found")));
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+        }
+        if (!copied.isEmpty()) {
+            clienteRepository.copyInsert(copied.stream().map(clientes::get).toList());
+            copied.forEach(
+                    i -> {
+                        clienteChangeNotifier.changed(clientes.get(i));
+                        saved.add(clientes.get(i));
+                        results[i] = BatchItemResult.created(i, clientes.get(i).getId());
+                    });
+        }
+        for (BatchItemResult result : results) {
+            if (result.status() != BatchItemResult.Status.REJECTED) {
+                clienteCache.invalidate(result.id());
+            }
+        }
+        if (!saved.isEmpty()) {
+            eventPublisher.publishEvent(new ClientesChangedEvent(saved, List.of()));
+        }
+        return new BatchResult(Arrays.asList(results));
+    }
+
+    /** One {@code DELETE ... RETURNING} statement; empty when there was no such cliente. */
+    public Optional<Cliente> deleteClienteById(Long id) {
+        Optional<Cliente> deleted = clienteRepository.deleteReturning(id);
+        if (deleted.isPresent()) {
+            clienteCache.invalidate(id);
+            clienteChangeNotifier.deleted(id);
+            eventPublisher.publishEvent(ClientesChangedEvent.deleted(id));
+        }
+        return deleted;
+    }
+
+    private Pageable pageable(FindClientesQuery findClientesQuery) {
+        return PageRequest.of(
+                findClientesQuery.pageNo(),
+                properties.getPagination().capPageSize(findClientesQuery.pageSize()),
+                SortableField.from(findClientesQuery.sortBy())
+                        .sort(direction(findClientesQuery.sortDir())));
     }
 
-    public void deleteClienteById(Long id) {
-        clienteRepository.deleteById(id);
+    private static Sort.Direction direction(String sortDir) {
+        return Sort.Direction.ASC.name().equalsIgnoreCase(sortDir)
+                ? Sort.Direction.ASC
+                : Sort.Direction.DESC;
     }
 }
@@ -0,0 +1,370 @@
+package liqui.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import liqui.config.ApplicationProperties;
+import liqui.config.ApplicationProperties.WriteBehind.Fsync;
+import liqui.entities.Cliente;
+import liqui.exception.ServiceUnavailableException;
+import liqui.model.response.WriteBehindStatus;
+import liqui.repositories.ClienteRepository;
+import liqui.utils.CsvUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Write-behind path for creates: a cliente gets an id from a block reserved on {@code
+ * clientes_seq}, is appended to the {@link WriteAheadLog} and put in a bounded queue, and is
+ * acknowledged right away. A single writer thread drains the queue into batched inserts through
+ * {@link ClienteService#insertQueued}, retrying a failed batch until it commits, then records the
+ * committed position in the log and deletes the segments everything in which is committed. On
+ * start, whatever a previous run logged past its committed position and did not insert is inserted
+ * before the web server takes requests.
+ *
+ * <p>A batch the database refuses as invalid is inserted again one cliente at a time, and a cliente
+ * it still refuses is appended to {@code dead-letter.csv} in the log directory rather than retried
+ * forever, which would hold back everything queued behind it.
+ *
+ * <p>Starts before and stops after the web server, so that the queue is drained on a graceful
+ * shutdown.
+ */
+@Slf4j
+@Component
+public class ClienteWriteBehindQueue implements SmartLifecycle {
+
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 30_000;
+    private static final String DEAD_LETTER = "dead-letter.csv";
+
+    private final ApplicationProperties.WriteBehind config;
+    private final ClienteService clienteService;
+    private final ClienteRepository clienteRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Entry> queue;
+    private final Deque<Long> ids = new ArrayDeque<>();
+    private final Object appendLock = new Object();
+
+    private final Timer flushTimer;
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter inserted;
+    private final Counter deadLettered;
+
+    private volatile WriteAheadLog wal;
+    private volatile boolean running;
+    private volatile Instant lastFlushAt;
+    private volatile String lastError;
+    private Thread writer;
+
+    public ClienteWriteBehindQueue(
+            ApplicationProperties properties,
+            ClienteService clienteService,
+            ClienteRepository clienteRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry) {
+        this.config = properties.getWriteBehind();
+        this.clienteService = clienteService;
+        this.clienteRepository = clienteRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(config.getCapacity());
+
+        Gauge.builder("writebehind.queue.depth", queue, BlockingQueue::size)
+                .description("Clientes accepted and not inserted yet")
+                .register(meterRegistry);
+        Gauge.builder("writebehind.wal.size", this, self -> self.wal == null ? 0 : self.wal.size())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.flushTimer =
+                Timer.builder("writebehind.flush")
+                        .description("Insert of one batch of queued clientes, retries excluded")
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
+        this.accepted = meterRegistry.counter("writebehind.clientes", "result", "accepted");
+        this.rejected = meterRegistry.counter("writebehind.clientes", "result", "rejected");
+        this.inserted = meterRegistry.counter("writebehind.clientes", "result", "inserted");
+        this.deadLettered =
+                meterRegistry.counter("writebehind.clientes", "result", "dead-lettered");
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Logs and queues a new cliente, returning it with its id once it is durable as configured by
+     * {@code application.write-behind.fsync}.
+     *
+     * @throws ServiceUnavailableException when the queue is full or the writer is stopped
+     */
+    public Cliente enqueue(String text) {
+        if (!running) {
+            throw new ServiceUnavailableException(
+                    "Asynchronous creates are not available", config.getRetryDelay());
+        }
+        Cliente cliente = new Cliente(nextId(), text);
+        synchronized (appendLock) {
+            if (queue.remainingCapacity() == 0) {
+                rejected.increment();
+                throw new ServiceUnavailableException(
+                        "Too many clientes waiting to be written", config.getRetryDelay());
+            }
+            try {
+                // log and queue in the same order, the writer relies on it to release segments
+                queue.add(new Entry(cliente, wal.append(cliente)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot append to the write-ahead log", e);
+            }
+        }
+        accepted.increment();
+        return cliente;
+    }
+
+    public WriteBehindStatus getStatus() {
+        return new WriteBehindStatus(
+                config.isEnabled(),
+                queue.size(),
+                config.getCapacity(),
+                (long) accepted.count(),
+                (long) inserted.count(),
+                wal == null ? 0 : wal.size(),
+                lastFlushAt,
+                lastError);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running || !config.isEnabled()) {
+            return;
+        }
+        try {
+            wal =
+                    new WriteAheadLog(
+                            config.getWalDirectory(),
+                            config.getFsync(),
+                            config.getSegmentSize().toBytes());
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the write-ahead log", e);
+        }
+        running = true;
+        writer = new Thread(this::drain, "cliente-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            // the writer exits once the queue is empty, or on its first failure
+            writer.join(SHUTDOWN_TIMEOUT_MILLIS);
+            if (writer.isAlive()) {
+                log.warn("Write-behind writer still busy, the rest stays in the write-ahead log");
+            }
+            wal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Cannot close the write-ahead log", e);
+        }
+        writer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private Long nextId() {
+        synchronized (ids) {
+            if (ids.isEmpty()) {
+                ids.addAll(
+                        transactionTemplate.execute(
+                                status ->
+                                        clienteRepository.allocateIds(
+                                                ClienteRepository.ID_ALLOCATION_SIZE)));
+            }
+            return ids.removeFirst();
+        }
+    }
+
+    /** Inserts what the log holds and the database lacks: the tail that was never committed. */
+    private void recover() throws IOException {
+        List<Cliente> logged = wal.readPrevious();
+        int recovered = 0;
+        for (int from = 0; from < logged.size(); from += config.getBatchSize()) {
+            List<Cliente> chunk =
+                    logged.subList(from, Math.min(from + config.getBatchSize(), logged.size()));
+            Set<Long> existing =
+                    new HashSet<>(
+                            clienteRepository.findExistingIds(
+                                    chunk.stream().map(Cliente::getId).toList()));
+            List<Cliente> missing =
+                    chunk.stream().filter(cliente -> !existing.contains(cliente.getId())).toList();
+            if (!missing.isEmpty()) {
+                recovered += insert(new ArrayList<>(missing));
+            }
+        }
+        wal.deleteBefore(wal.currentSegment());
+        if (!logged.isEmpty()) {
+            log.info(
+                    "Replayed the write-ahead log: {} clientes logged, {} were missing",
+                    logged.size(),
+                    recovered);
+        }
+    }
+
+    private void drain() {
+        long intervalNanos = config.getFsyncInterval().toNanos();
+        long lastSync = System.nanoTime();
+        List<Entry> batch = new ArrayList<>(config.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(intervalNanos, TimeUnit.NANOSECONDS);
+                if (config.getFsync() == Fsync.INTERVAL
+                        && System.nanoTime() - lastSync >= intervalNanos) {
+                    wal.sync();
+                    lastSync = System.nanoTime();
+                }
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, config.getBatchSize() - 1);
+                if (!flush(batch)) {
+                    return;
+                }
+                // log and queue order are the same, the last of the batch is the furthest
+                WriteAheadLog.Position committed = batch.get(batch.size() - 1).position();
+                batch.clear();
+                wal.commit(committed);
+                Entry next = queue.peek();
+                wal.deleteBefore(next != null ? next.position().segment() : wal.currentSegment());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                log.warn("Write-ahead log maintenance failed", e);
+            }
+        }
+    }
+
+    /** Inserts {@code batch}, retrying until it commits; false when stopped before it could. */
+    private boolean flush(List<Entry> batch) throws InterruptedException {
+        List<Cliente> clientes = batch.stream().map(Entry::cliente).toList();
+        while (true) {
+            long start = System.nanoTime();
+            try {
+                int count = insert(clientes);
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                inserted.increment(count);
+                lastFlushAt = Instant.now();
+                lastError = null;
+                return true;
+            } catch (RuntimeException e) {
+                lastError = e.getMessage();
+                if (!running) {
+                    log.error(
+                            "Stopping with {} clientes not inserted, left in the write-ahead log",
+                            batch.size() + queue.size(),
+                            e);
+                    return false;
+                }
+                log.warn(
+                        "Insert of {} queued clientes failed, retrying in {}",
+                        clientes.size(),
+                        config.getRetryDelay(),
+                        e);
+                Thread.sleep(config.getRetryDelay().toMillis());
+            }
+        }
+    }
+
+    /**
+     * Inserts {@code clientes}, one at a time when the database refuses them together, and returns
+     * how many it took. Failures other than invalid data propagate, to be retried.
+     */
+    private int insert(List<Cliente> clientes) {
+        try {
+            clienteService.insertQueued(clientes);
+            return clientes.size();
+        } catch (DataIntegrityViolationException e) {
+            if (clientes.size() > 1) {
+                int count = 0;
+                for (Cliente cliente : clientes) {
+                    count += insert(List.of(cliente));
+                }
+                return count;
+            }
+            Cliente cliente = clientes.get(0);
+            // inserted alone before a retry of its whole batch, not refused
+            if (!clienteRepository.findExistingIds(List.of(cliente.getId())).isEmpty()) {
+                return 0;
+            }
+            deadLetter(cliente, e);
+            return 0;
+        }
+    }
+
+    private void deadLetter(Cliente cliente, DataIntegrityViolationException e) {
+        deadLettered.increment();
+        String error = e.getMostSpecificCause().getMessage();
+        log.error("Cliente {} refused by the database, dead-lettered: {}", cliente.getId(), error);
+        Path file = config.getWalDirectory().resolve(DEAD_LETTER);
+        String line =
+                String.join(
+                                ",",
+                                cliente.getId().toString(),
+                                CsvUtils.escape(cliente.getText()),
+                                CsvUtils.escape(error))
+                        + "\n";
+        try {
+            if (!Files.exists(file)) {
+                line = "id,text,error\n" + line;
+            }
+            Files.writeString(
+                    file,
+                    line,
+                    StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND,
+                    config.getFsync() == Fsync.NEVER
+                            ? StandardOpenOption.WRITE
+                            : StandardOpenOption.DSYNC);
+        } catch (IOException io) {
+            log.error("Cannot write to {}, lost cliente {}: {}", file, cliente.getId(), line, io);
+        }
+    }
+
+    private record Entry(Cliente cliente, WriteAheadLog.Position position) {}
+}
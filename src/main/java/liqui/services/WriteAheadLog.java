@@ -0,0 +1,266 @@
+package liqui.services;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import liqui.config.ApplicationProperties.WriteBehind.Fsync;
+import liqui.entities.Cliente;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only log of the clientes accepted by {@link ClienteWriteBehindQueue}, in numbered segment
+ * files. A record is {@code [payload length][crc32 of payload][id][utf-8 text]}; reading a segment
+ * stops at the first short or corrupt record, which can only be the tail written during a crash. A
+ * new log always starts a new segment, the ones left by a previous run are for {@link
+ * #readPrevious()}.
+ *
+ * <p>{@link #commit} records in {@code wal-committed} the position up to which every record is in
+ * the database, so that the records before it are never replayed: a cliente inserted and then
+ * deleted must not come back with the next start.
+ */
+@Slf4j
+final class WriteAheadLog implements Closeable {
+
+    private static final Pattern SEGMENT = Pattern.compile("wal-(\\d{20})\\.log");
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final String COMMITTED = "wal-committed";
+
+    private final Path directory;
+    private final Fsync fsync;
+    private final long segmentSize;
+    private final AtomicLong bytes = new AtomicLong();
+    private final Position committed;
+
+    private FileChannel channel;
+    private long segment;
+    private long segmentBytes;
+
+    WriteAheadLog(Path directory, Fsync fsync, long segmentSize) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        this.committed = readCommitted();
+        List<Long> existing = segments();
+        for (long previous : existing) {
+            bytes.addAndGet(Files.size(path(previous)));
+        }
+        // numbered past the committed position too, which may name a segment deleted since
+        long last = existing.isEmpty() ? 0 : existing.get(existing.size() - 1);
+        open(Math.max(last, committed.segment()) + 1);
+    }
+
+    /** Appends {@code cliente}, durably under {@code ALWAYS}, and returns where its record ends. */
+    synchronized Position append(Cliente cliente) throws IOException {
+        byte[] text = cliente.getText().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(Long.BYTES + text.length);
+        payload.putLong(cliente.getId()).put(text).flip();
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.remaining());
+        record.putInt(payload.remaining()).putInt((int) crc.getValue()).put(payload).flip();
+        if (segmentBytes > 0 && segmentBytes + record.remaining() > segmentSize) {
+            roll();
+        }
+        int length = record.remaining();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        segmentBytes += length;
+        bytes.addAndGet(length);
+        if (fsync == Fsync.ALWAYS) {
+            channel.force(false);
+        }
+        return new Position(segment, segmentBytes);
+    }
+
+    /** Records that every record up to {@code position} is in the database. */
+    void commit(Position position) throws IOException {
+        ByteBuffer content =
+                ByteBuffer.allocate(2 * Long.BYTES)
+                        .putLong(position.segment())
+                        .putLong(position.offset())
+                        .flip();
+        Path partial = directory.resolve(COMMITTED + ".tmp");
+        try (FileChannel file =
+                FileChannel.open(
+                        partial,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (content.hasRemaining()) {
+                file.write(content);
+            }
+            if (fsync != Fsync.NEVER) {
+                file.force(false);
+            }
+        }
+        Files.move(
+                partial,
+                directory.resolve(COMMITTED),
+                StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Forces the current segment to disk; what {@code INTERVAL} calls periodically. */
+    synchronized void sync() throws IOException {
+        channel.force(false);
+    }
+
+    synchronized long currentSegment() {
+        return segment;
+    }
+
+    /** Bytes in all segments on disk, the current one included. */
+    long size() {
+        return bytes.get();
+    }
+
+    /**
+     * Clientes in the segments left by a previous run past the committed position, in the order
+     * they were appended.
+     */
+    List<Cliente> readPrevious() throws IOException {
+        List<Cliente> clientes = new ArrayList<>();
+        for (long previous : segments()) {
+            if (previous < currentSegment() && previous >= committed.segment()) {
+                read(
+                        path(previous),
+                        previous == committed.segment() ? committed.offset() : 0,
+                        clientes);
+            }
+        }
+        return clientes;
+    }
+
+    /** Deletes the segments before {@code segment}, once all of their clientes are committed. */
+    void deleteBefore(long segment) throws IOException {
+        for (long previous : segments()) {
+            if (previous >= Math.min(segment, currentSegment())) {
+                break;
+            }
+            Path path = path(previous);
+            long size = Files.size(path);
+            Files.delete(path);
+            bytes.addAndGet(-size);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (fsync != Fsync.NEVER) {
+            channel.force(false);
+        }
+        channel.close();
+    }
+
+    private void roll() throws IOException {
+        if (fsync != Fsync.NEVER) {
+            channel.force(false);
+        }
+        channel.close();
+        open(segment + 1);
+    }
+
+    private void open(long next) throws IOException {
+        segment = next;
+        segmentBytes = 0;
+        channel =
+                FileChannel.open(
+                        path(next),
+                        StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+    }
+
+    private Position readCommitted() throws IOException {
+        Path file = directory.resolve(COMMITTED);
+        if (!Files.exists(file) || Files.size(file) != 2 * Long.BYTES) {
+            return new Position(0, 0);
+        }
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+        return new Position(content.getLong(), content.getLong());
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> SEGMENT.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.valueOf(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path path(long segment) {
+        return directory.resolve(String.format("wal-%020d.log", segment));
+    }
+
+    /** Reads the records of {@code path} that end past {@code from}. */
+    private static void read(Path path, long from, List<Cliente> clientes) throws IOException {
+        long fileSize = Files.size(path);
+        long offset = 0;
+        try (InputStream file = Files.newInputStream(path);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            while (true) {
+                byte[] payload;
+                int checksum;
+                try {
+                    int length = in.readInt();
+                    checksum = in.readInt();
+                    // a torn header can announce any length, never read past the file
+                    if (length < Long.BYTES || length > fileSize) {
+                        log.warn("Corrupt record in {}, ignoring the rest of it", path);
+                        return;
+                    }
+                    payload = in.readNBytes(length);
+                    if (payload.length < length) {
+                        log.warn("Torn record at the end of {}, ignoring it", path);
+                        return;
+                    }
+                } catch (EOFException e) {
+                    return;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Corrupt record in {}, ignoring the rest of it", path);
+                    return;
+                }
+                offset += HEADER_BYTES + payload.length;
+                if (offset <= from) {
+                    continue;
+                }
+                clientes.add(
+                        new Cliente(
+                                ByteBuffer.wrap(payload).getLong(),
+                                new String(
+                                        payload,
+                                        Long.BYTES,
+                                        payload.length - Long.BYTES,
+                                        StandardCharsets.UTF_8)));
+            }
+        }
+    }
+
+    /** Where a record ends: its segment, and the offset in it right past the record. */
+    record Position(long segment, long offset) {}
+}
@@ -0,0 +1,24 @@
+package liqui.services.outbox;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import liqui.model.event.OutboxEvent;
+
+/** Keeps the delivered events in memory; registered as a bean by tests. */
+public class InMemoryOutboxSink implements OutboxSink {
+
+    private final List<OutboxEvent> events = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void deliver(List<OutboxEvent> events) {
+        this.events.addAll(events);
+    }
+
+    public List<OutboxEvent> getEvents() {
+        return List.copyOf(events);
+    }
+
+    public void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,171 @@
+package liqui.services.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import liqui.config.ApplicationProperties;
+import liqui.model.event.ClientesChangedEvent;
+import liqui.model.event.OutboxEvent;
+import liqui.repositories.OutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Drains the outbox: in one transaction, claims the oldest batch with {@code FOR UPDATE SKIP
+ * LOCKED}, delivers it to every {@link OutboxSink} and deletes it. Relays of several replicas thus
+ * work on disjoint batches, and a batch that fails anywhere is rolled back and claimed again after
+ * {@code retry-delay}. Delivered events are deleted right away, so the table only ever holds the
+ * backlog and there is nothing left to prune.
+ */
+@Slf4j
+@Component
+public class OutboxRelay implements SmartLifecycle {
+
+    private final ApplicationProperties.Outbox config;
+    private final OutboxRepository outboxRepository;
+    private final List<OutboxSink> sinks;
+    private final TransactionTemplate transactionTemplate;
+    private final Object signal = new Object();
+
+    private final Timer batchTimer;
+    private final Counter delivered;
+    private final Counter failures;
+
+    private volatile boolean running;
+    private boolean pending;
+    private Thread thread;
+
+    public OutboxRelay(
+            ApplicationProperties properties,
+            OutboxRepository outboxRepository,
+            List<OutboxSink> sinks,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry) {
+        this.config = properties.getOutbox();
+        this.outboxRepository = outboxRepository;
+        this.sinks = sinks;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchTimer =
+                Timer.builder("outbox.relay")
+                        .description("Claim, delivery and deletion of one outbox batch")
+                        .register(meterRegistry);
+        this.delivered = meterRegistry.counter("outbox.delivered");
+        this.failures = meterRegistry.counter("outbox.failures");
+    }
+
+    /** Ends the pause of the relay: this instance just committed events. */
+    @TransactionalEventListener
+    public void onClientesChanged(ClientesChangedEvent event) {
+        synchronized (signal) {
+            pending = true;
+            signal.notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running || !config.isEnabled()) {
+            return;
+        }
+        if (sinks.isEmpty()) {
+            throw new IllegalStateException(
+                    "application.outbox.enabled needs a sink, such as"
+                            + " application.outbox.log-file.path or application.outbox.webhook.url");
+        }
+        running = true;
+        thread = new Thread(this::relay, "outbox-relay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+        try {
+            thread.join(config.getRetryDelay().toMillis() + 10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Delivers one batch; the number of events in it, 0 once the outbox is empty. */
+    int relayBatch() {
+        long start = System.nanoTime();
+        Integer count =
+                transactionTemplate.execute(
+                        status -> {
+                            List<OutboxEvent> events =
+                                    outboxRepository.claim(config.getBatchSize());
+                            if (events.isEmpty()) {
+                                return 0;
+                            }
+                            for (OutboxSink sink : sinks) {
+                                try {
+                                    sink.deliver(events);
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            }
+                            outboxRepository.delete(events.stream().map(OutboxEvent::id).toList());
+                            return events.size();
+                        });
+        if (count != null && count > 0) {
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            delivered.increment(count);
+        }
+        return count == null ? 0 : count;
+    }
+
+    private void relay() {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            try {
+                if (relayBatch() < config.getBatchSize()) {
+                    pause(config.getPollInterval(), true);
+                }
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.warn("Outbox delivery failed, retrying in {}", config.getRetryDelay(), e);
+                pause(config.getRetryDelay(), false);
+            }
+        }
+    }
+
+    /** Waits {@code duration}, or until {@link #stop()} or, when asked to, until a commit. */
+    private void pause(Duration duration, boolean untilCommit) {
+        long deadline = System.nanoTime() + duration.toNanos();
+        synchronized (signal) {
+            try {
+                long left;
+                while (running
+                        && !(untilCommit && pending)
+                        && (left = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(signal, left);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            pending = false;
+        }
+    }
+}
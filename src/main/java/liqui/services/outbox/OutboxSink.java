@@ -0,0 +1,15 @@
+package liqui.services.outbox;
+
+import java.io.IOException;
+import java.util.List;
+import liqui.model.event.OutboxEvent;
+
+/**
+ * Destination of the {@link OutboxRelay}; every bean implementing it gets every event. Delivery is
+ * at least once: a batch that failed in any sink is delivered again to all of them, so a sink drops
+ * what it already has by {@link OutboxEvent#id()}.
+ */
+public interface OutboxSink {
+
+    void deliver(List<OutboxEvent> events) throws IOException;
+}
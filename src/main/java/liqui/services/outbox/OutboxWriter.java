@@ -0,0 +1,68 @@
+package liqui.services.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import liqui.config.ApplicationProperties;
+import liqui.entities.Cliente;
+import liqui.model.event.ClientesChangedEvent;
+import liqui.model.event.OutboxEvent;
+import liqui.model.response.ClienteChange;
+import liqui.repositories.OutboxRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Inserts the events of a {@link ClientesChangedEvent} into the outbox right before the commit of
+ * the write that published it, so they are committed or rolled back together with it.
+ */
+@Component
+public class OutboxWriter {
+
+    private final OutboxRepository outboxRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+
+    public OutboxWriter(
+            OutboxRepository outboxRepository,
+            EntityManager entityManager,
+            ObjectMapper objectMapper,
+            ApplicationProperties properties) {
+        this.outboxRepository = outboxRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.enabled = properties.getOutbox().isEnabled();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onClientesChanged(ClientesChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        // versions of merged clientes are only final once flushed
+        entityManager.flush();
+        List<OutboxEvent> events = new ArrayList<>(event.saved().size() + event.deleted().size());
+        for (Cliente cliente : event.saved()) {
+            events.add(toOutboxEvent(ClienteChange.saved(cliente)));
+        }
+        for (Long id : event.deleted()) {
+            events.add(toOutboxEvent(ClienteChange.deleted(id)));
+        }
+        if (!events.isEmpty()) {
+            outboxRepository.insert(events);
+        }
+    }
+
+    private OutboxEvent toOutboxEvent(ClienteChange change) {
+        try {
+            return OutboxEvent.of(
+                    change.type().value(), change.id(), objectMapper.writeValueAsString(change));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + change, e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package liqui.services.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import liqui.config.ApplicationProperties;
+import liqui.model.event.OutboxEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+/**
+ * POSTs every batch as a JSON array to {@code application.outbox.webhook.url}; anything but a 2xx
+ * fails the batch.
+ */
+@Component
+@ConditionalOnProperty("application.outbox.webhook.url")
+public class WebhookOutboxSink implements OutboxSink {
+
+    private final ApplicationProperties.Outbox.Webhook config;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+
+    public WebhookOutboxSink(ApplicationProperties properties, ObjectMapper objectMapper) {
+        this.config = properties.getOutbox().getWebhook();
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(config.getTimeout()).build();
+    }
+
+    @Override
+    public void deliver(List<OutboxEvent> events) throws IOException {
+        HttpRequest request =
+                HttpRequest.newBuilder(config.getUrl())
+                        .timeout(config.getTimeout())
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .POST(
+                                HttpRequest.BodyPublishers.ofByteArray(
+                                        objectMapper.writeValueAsBytes(events)))
+                        .build();
+        HttpResponse<Void> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while posting outbox events");
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException(
+                    "Webhook " + config.getUrl() + " answered " + response.statusCode());
+        }
+    }
+}
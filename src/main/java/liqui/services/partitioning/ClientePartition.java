@@ -0,0 +1,47 @@
+package liqui.services.partitioning;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A range partition of {@code clientes}, holding the ids from {@code lower} inclusive to {@code
+ * upper} exclusive; {@link Long#MIN_VALUE} and {@link Long#MAX_VALUE} stand for {@code MINVALUE}
+ * and {@code MAXVALUE}. Partitions are named after their lower bound, {@code clientes_p<lower>},
+ * the first one after the table it was made of, {@code clientes_p0}.
+ */
+record ClientePartition(String name, long lower, long upper) {
+
+    static final Pattern NAME = Pattern.compile("clientes_p\\d+");
+
+    private static final Pattern BOUNDS =
+            Pattern.compile("FOR VALUES FROM \\('?([^')]+)'?\\) TO \\('?([^')]+)'?\\)");
+
+    ClientePartition {
+        // interpolated into DDL, never anything but a name of ours
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Not a cliente partition: " + name);
+        }
+    }
+
+    static ClientePartition of(long lower, long upper) {
+        return new ClientePartition("clientes_p" + lower, lower, upper);
+    }
+
+    /** Parses the bounds as {@code pg_get_expr(relpartbound, oid)} prints them. */
+    static ClientePartition parse(String name, String bounds) {
+        Matcher matcher = BOUNDS.matcher(bounds);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException(
+                    "Unexpected bounds for partition " + name + ": " + bounds);
+        }
+        return new ClientePartition(name, bound(matcher.group(1)), bound(matcher.group(2)));
+    }
+
+    private static long bound(String value) {
+        return switch (value) {
+            case "MINVALUE" -> Long.MIN_VALUE;
+            case "MAXVALUE" -> Long.MAX_VALUE;
+            default -> Long.parseLong(value);
+        };
+    }
+}
@@ -0,0 +1,335 @@
+package liqui.services.partitioning;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import javax.sql.DataSource;
+import liqui.config.ApplicationProperties;
+import liqui.config.DatabasePlatform;
+import liqui.repositories.ClienteRepositoryCustom;
+import liqui.services.ClienteCache;
+import liqui.services.ClienteChangeListener;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the range partitions of {@code clientes} ahead of {@code clientes_seq}: every {@code
+ * check-interval}, creates partitions of {@code partition-size} ids until {@code ahead} of them lie
+ * beyond the ids handed out so far. With archival enabled, the full partitions older than the
+ * newest {@code retain} are detached concurrently, copied to {@code clientes_p<lower>.csv.gz} in
+ * the archive directory and dropped; a partition a crash left detached, or half detached, is
+ * archived on the next run. A session advisory lock keeps the replicas from running it at the same
+ * time.
+ *
+ * <p>Runs on its own autocommit connection from the primary pool, since {@code DETACH PARTITION
+ * CONCURRENTLY} cannot run in a transaction. Only on PostgreSQL, where {@code
+ * 08-partition_clientes_table.xml} partitioned the table; there is no default partition, so an id
+ * past the last partition fails to insert.
+ */
+@Slf4j
+@Component
+public class ClientePartitionMaintenance implements SmartLifecycle {
+
+    private static final String LOCK = "hashtext('clientes_partition_maintenance')";
+
+    private final ApplicationProperties.Partitioning config;
+    private final ApplicationProperties.Cache.Coherence coherence;
+    private final DataSource dataSource;
+    private final DatabasePlatform databasePlatform;
+    private final ClienteCache clienteCache;
+    private final Counter created;
+    private final Counter archived;
+    private final Counter failures;
+
+    private volatile boolean running;
+    private ScheduledExecutorService executor;
+
+    public ClientePartitionMaintenance(
+            ApplicationProperties properties,
+            @Qualifier("primaryDataSource") DataSource dataSource,
+            DatabasePlatform databasePlatform,
+            ClienteCache clienteCache,
+            MeterRegistry meterRegistry) {
+        this.config = properties.getPartitioning();
+        this.coherence = properties.getCache().getCoherence();
+        this.dataSource = dataSource;
+        this.databasePlatform = databasePlatform;
+        this.clienteCache = clienteCache;
+        this.created = meterRegistry.counter("partitioning.partitions", "action", "created");
+        this.archived = meterRegistry.counter("partitioning.partitions", "action", "archived");
+        this.failures = meterRegistry.counter("partitioning.failures");
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running || !config.isEnabled() || !databasePlatform.isPostgreSql()) {
+            return;
+        }
+        executor =
+                Executors.newSingleThreadScheduledExecutor(
+                        task -> {
+                            Thread thread = new Thread(task, "cliente-partition-maintenance");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        executor.scheduleWithFixedDelay(
+                this::maintain, 0, config.getCheckInterval().toMillis(), TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        executor.shutdownNow();
+        try {
+            // a COPY or DETACH under way is left to finish, or to the next run
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * The partitions to create and to archive, given the attached ones and {@code handedOut}, the
+     * id past every one handed out so far. Partitions to create continue from the last upper bound.
+     */
+    static Plan plan(
+            List<ClientePartition> partitions,
+            long handedOut,
+            ApplicationProperties.Partitioning config) {
+        List<ClientePartition> sorted =
+                partitions.stream()
+                        .sorted(Comparator.comparingLong(ClientePartition::upper))
+                        .toList();
+        List<ClientePartition> create = new ArrayList<>();
+        if (!sorted.isEmpty()) {
+            long lower = sorted.get(sorted.size() - 1).upper();
+            long target = handedOut + config.getAhead() * config.getPartitionSize();
+            while (lower < target && lower != Long.MAX_VALUE) {
+                create.add(ClientePartition.of(lower, lower + config.getPartitionSize()));
+                lower += config.getPartitionSize();
+            }
+        }
+        List<ClientePartition> archive = List.of();
+        if (config.getArchive().isEnabled()) {
+            List<ClientePartition> full =
+                    sorted.stream().filter(partition -> partition.upper() <= handedOut).toList();
+            archive = full.subList(0, Math.max(0, full.size() - config.getArchive().getRetain()));
+        }
+        return new Plan(create, archive);
+    }
+
+    void maintain() {
+        try (Connection connection = dataSource.getConnection()) {
+            // the pool hands out connections without autocommit, it restores it on close
+            connection.setAutoCommit(true);
+            if (!isPartitioned(connection) || !tryLock(connection)) {
+                return;
+            }
+            try {
+                maintain(connection);
+            } finally {
+                execute(connection, "select pg_advisory_unlock(" + LOCK + ")");
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            failures.increment();
+            log.warn("Partition maintenance failed, retrying in {}", config.getCheckInterval(), e);
+        }
+    }
+
+    private void maintain(Connection connection) throws SQLException, IOException {
+        boolean concurrently = connection.getMetaData().getDatabaseMajorVersion() >= 14;
+        List<String> leftovers = detached(connection);
+        List<ClientePartition> attached = new ArrayList<>();
+        for (Attached partition : attached(connection, concurrently)) {
+            if (partition.detachPending()) {
+                execute(
+                        connection,
+                        "alter table clientes detach partition "
+                                + partition.partition().name()
+                                + " finalize");
+                if (!leftovers.contains(partition.partition().name())) {
+                    leftovers.add(partition.partition().name());
+                }
+            } else {
+                attached.add(partition.partition());
+            }
+        }
+        for (String name : leftovers) {
+            archive(connection, name);
+        }
+
+        Plan plan = plan(attached, handedOut(connection), config);
+        for (ClientePartition partition : plan.create()) {
+            execute(
+                    connection,
+                    "create table "
+                            + partition.name()
+                            + " partition of clientes for values from ("
+                            + partition.lower()
+                            + ") to ("
+                            + partition.upper()
+                            + ")");
+            created.increment();
+            log.info("Created partition {}", partition.name());
+        }
+        for (ClientePartition partition : plan.archive()) {
+            execute(
+                    connection,
+                    "alter table clientes detach partition "
+                            + partition.name()
+                            + (concurrently ? " concurrently" : ""));
+            archive(connection, partition.name());
+        }
+        if (!leftovers.isEmpty() || !plan.archive().isEmpty()) {
+            forgetArchived(connection);
+        }
+    }
+
+    /** Copies the detached {@code name} to a gzipped CSV file, durably, then drops it. */
+    private void archive(Connection connection, String name) throws SQLException, IOException {
+        Path directory = config.getArchive().getDirectory();
+        Files.createDirectories(directory);
+        Path file = directory.resolve(name + ".csv.gz");
+        Path partial = directory.resolve(name + ".csv.gz.partial");
+        long rows;
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial))) {
+            rows =
+                    connection
+                            .unwrap(PGConnection.class)
+                            .getCopyAPI()
+                            .copyOut(
+                                    "COPY "
+                                            + name
+                                            + " (id, text, version) TO STDOUT"
+                                            + " WITH (FORMAT csv, HEADER)",
+                                    out);
+        }
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(
+                partial, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        execute(connection, "drop table " + name);
+        archived.increment();
+        log.info("Archived partition {}, {} clientes, to {}", name, rows, file);
+    }
+
+    /** Drops the cached clientes here and, through the change listeners, on the other replicas. */
+    private void forgetArchived(Connection connection) throws SQLException {
+        clienteCache.invalidateAll();
+        if (coherence.isEnabled()) {
+            try (PreparedStatement statement =
+                    connection.prepareStatement("select pg_notify(?, ?)")) {
+                statement.setString(1, coherence.getChannel());
+                statement.setString(2, ClienteChangeListener.ALL);
+                statement.execute();
+            }
+        }
+    }
+
+    private static boolean isPartitioned(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rows =
+                        statement.executeQuery(
+                                "select relkind from pg_class"
+                                        + " where oid = to_regclass('clientes')")) {
+            return rows.next() && "p".equals(rows.getString(1));
+        }
+    }
+
+    private static boolean tryLock(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rows =
+                        statement.executeQuery("select pg_try_advisory_lock(" + LOCK + ")")) {
+            return rows.next() && rows.getBoolean(1);
+        }
+    }
+
+    /** The id past every one handed out: the last block taken from the sequence included. */
+    private static long handedOut(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rows = statement.executeQuery("select last_value from clientes_seq")) {
+            rows.next();
+            return rows.getLong(1) + ClienteRepositoryCustom.ID_ALLOCATION_SIZE;
+        }
+    }
+
+    private static List<Attached> attached(Connection connection, boolean concurrently)
+            throws SQLException {
+        // inhdetachpending came with DETACH PARTITION CONCURRENTLY, in PostgreSQL 14
+        String sql =
+                "select c.relname, pg_get_expr(c.relpartbound, c.oid), "
+                        + (concurrently ? "i.inhdetachpending" : "false")
+                        + " from pg_inherits i join pg_class c on c.oid = i.inhrelid"
+                        + " where i.inhparent = to_regclass('clientes')";
+        List<Attached> partitions = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+                ResultSet rows = statement.executeQuery(sql)) {
+            while (rows.next()) {
+                partitions.add(
+                        new Attached(
+                                ClientePartition.parse(rows.getString(1), rows.getString(2)),
+                                rows.getBoolean(3)));
+            }
+        }
+        return partitions;
+    }
+
+    /** Former partitions, detached and not archived yet. */
+    private static List<String> detached(Connection connection) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+                ResultSet rows =
+                        statement.executeQuery(
+                                "select relname from pg_class"
+                                        + " where relname ~ '^clientes_p[0-9]+$'"
+                                        + " and relkind = 'r' and not relispartition"
+                                        + " and relnamespace = to_regnamespace(current_schema())")) {
+            while (rows.next()) {
+                names.add(rows.getString(1));
+            }
+        }
+        return names;
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    record Plan(List<ClientePartition> create, List<ClientePartition> archive) {}
+
+    private record Attached(ClientePartition partition, boolean detachPending) {}
+}
@@ -0,0 +1,20 @@
+package liqui.utils;
+
+/** RFC 4180 quoting, shared by CSV export and PostgreSQL {@code COPY ... (FORMAT csv)}. */
+public final class CsvUtils {
+
+    private CsvUtils() {}
+
+    public static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0
+                && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,92 @@
+package liqui.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import liqui.entities.Cliente;
+import liqui.exception.PreconditionFailedException;
+import liqui.model.response.ClienteView;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Entity tags derived from {@code Cliente.version}: a single cliente gets the strong tag {@code
+ * "<version>"}, so a conditional request can be answered from the version alone.
+ */
+public final class ETagUtils {
+
+    private static final String WEAK_PREFIX = "W/";
+
+    private ETagUtils() {}
+
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Weak tag for a page of clientes: ids and versions determine the rendering of each element,
+     * {@code state} covers the rest of the page (totals, cursors).
+     */
+    public static String of(List<Cliente> clientes, Object... state) {
+        StringBuilder key = new StringBuilder();
+        for (Cliente cliente : clientes) {
+            key.append(cliente.getId()).append(':').append(cliente.getVersion()).append(',');
+        }
+        return weak(key, state);
+    }
+
+    /** As {@link #of(List, Object...)}; {@code state} should include the selected fields. */
+    public static String ofViews(List<ClienteView> views, Object... state) {
+        StringBuilder key = new StringBuilder();
+        for (ClienteView view : views) {
+            key.append(view.id()).append(':').append(view.version()).append(',');
+        }
+        return weak(key, state);
+    }
+
+    private static String weak(StringBuilder key, Object... state) {
+        for (Object part : state) {
+            key.append('|').append(part);
+        }
+        return WEAK_PREFIX
+                + "\""
+                + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8))
+                + "\"";
+    }
+
+    /** Weak comparison against an {@code If-None-Match} header, as RFC 9110 asks for. */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch.trim().equals("*")) {
+            return true;
+        }
+        String opaque = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            if (stripWeak(candidate.trim()).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Version required by an {@code If-Match} header, or {@code null} when there is no header or it
+     * is {@code *}. Only a single strong tag of ours can ever match, so anything else fails the
+     * precondition straight away.
+     */
+    public static Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.valueOf(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // falls through
+            }
+        }
+        throw new PreconditionFailedException("If-Match must be a single strong ETag: " + ifMatch);
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith(WEAK_PREFIX) ? etag.substring(WEAK_PREFIX.length()) : etag;
+    }
+}
@@ -1,44 +1,185 @@
 package liqui.web.controllers;
 
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import liqui.entities.Cliente;
+import liqui.model.query.ClienteField;
+import liqui.model.query.CountStrategy;
+import liqui.model.query.DataFormat;
+import liqui.model.query.FindClientesQuery;
+import liqui.model.request.ClientePatch;
+import liqui.model.response.BatchResult;
+import liqui.model.response.ClienteView;
+import liqui.model.response.CursorResult;
+import liqui.model.response.ImportJobStatus;
 import liqui.model.response.PagedResult;
+import liqui.model.response.WriteBehindStatus;
+import liqui.services.ClienteChangeFeed;
+import liqui.services.ClienteExportService;
+import liqui.services.ClienteImportService;
+import liqui.services.ClienteSearchService;
 import liqui.services.ClienteService;
+import liqui.services.ClienteWriteBehindQueue;
 import liqui.utils.AppConstants;
+import liqui.utils.ETagUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
-@RequestMapping("")
+@RequestMapping({"", "/"})
 @Slf4j
 public class ClienteController {
 
+    private static final String PREFER = "Prefer";
+    private static final String PREFERENCE_APPLIED = "Preference-Applied";
+    private static final String RESPOND_ASYNC = "respond-async";
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+    private static final String IMPORT_ID = "Import-Id";
+
     private final ClienteService clienteService;
+    private final ClienteExportService clienteExportService;
+    private final ClienteImportService clienteImportService;
+    private final ClienteSearchService clienteSearchService;
+    private final ClienteWriteBehindQueue clienteWriteBehindQueue;
+    private final ClienteChangeFeed clienteChangeFeed;
 
     @Autowired
-    public ClienteController(ClienteService clienteService) {
+    public ClienteController(
+            ClienteService clienteService,
+            ClienteExportService clienteExportService,
+            ClienteImportService clienteImportService,
+            ClienteSearchService clienteSearchService,
+            ClienteWriteBehindQueue clienteWriteBehindQueue,
+            ClienteChangeFeed clienteChangeFeed) {
         this.clienteService = clienteService;
+        this.clienteExportService = clienteExportService;
+        this.clienteImportService = clienteImportService;
+        this.clienteSearchService = clienteSearchService;
+        this.clienteWriteBehindQueue = clienteWriteBehindQueue;
+        this.clienteChangeFeed = clienteChangeFeed;
     }
 
     @GetMapping
-    public PagedResult<Cliente> getAllClientes(
+    public ResponseEntity<PagedResult<Cliente>> getAllClientes(
+            @RequestParam(
+                            value = "pageNo",
+                            defaultValue = AppConstants.DEFAULT_PAGE_NUMBER,
+                            required = false)
+                    int pageNo,
+            @RequestParam(
+                            value = "pageSize",
+                            defaultValue = AppConstants.DEFAULT_PAGE_SIZE,
+                            required = false)
+                    int pageSize,
+            @RequestParam(
+                            value = "sortBy",
+                            defaultValue = AppConstants.DEFAULT_SORT_BY,
+                            required = false)
+                    String sortBy,
+            @RequestParam(
+                            value = "sortDir",
+                            defaultValue = AppConstants.DEFAULT_SORT_DIRECTION,
+                            required = false)
+                    String sortDir,
+            @RequestParam(
+                            value = "count",
+                            defaultValue = AppConstants.DEFAULT_COUNT_STRATEGY,
+                            required = false)
+                    String count) {
+        FindClientesQuery findClientesQuery =
+                new FindClientesQuery(pageNo, pageSize, sortBy, sortDir, CountStrategy.from(count));
+        PagedResult<Cliente> result = clienteService.findAllClientes(findClientesQuery);
+        // a matching If-None-Match turns this into a 304 without a body
+        return ResponseEntity.ok()
+                .eTag(
+                        ETagUtils.of(
+                                result.data(),
+                                result.pageNumber(),
+                                result.totalElements(),
+                                result.hasNext(),
+                                result.countStrategy()))
+                .body(result);
+    }
+
+    /**
+     * The listing with only the comma-separated {@code fields} in each element, besides {@code id}
+     * and {@code version}; the columns left out are not even read.
+     */
+    @GetMapping(params = {"fields", "!after"})
+    public ResponseEntity<PagedResult<ClienteView>> getClienteViews(
+            @RequestParam(value = "fields") String fields,
             @RequestParam(
                             value = "pageNo",
                             defaultValue = AppConstants.DEFAULT_PAGE_NUMBER,
                             required = false)
                     int pageNo,
+            @RequestParam(
+                            value = "pageSize",
+                            defaultValue = AppConstants.DEFAULT_PAGE_SIZE,
+                            required = false)
+                    int pageSize,
+            @RequestParam(
+                            value = "sortBy",
+                            defaultValue = AppConstants.DEFAULT_SORT_BY,
+                            required = false)
+                    String sortBy,
+            @RequestParam(
+                            value = "sortDir",
+                            defaultValue = AppConstants.DEFAULT_SORT_DIRECTION,
+                            required = false)
+                    String sortDir,
+            @RequestParam(
+                            value = "count",
+                            defaultValue = AppConstants.DEFAULT_COUNT_STRATEGY,
+                            required = false)
+                    String count) {
+        Set<ClienteField> clienteFields = ClienteField.parse(fields);
+        FindClientesQuery findClientesQuery =
+                new FindClientesQuery(pageNo, pageSize, sortBy, sortDir, CountStrategy.from(count));
+        PagedResult<ClienteView> result =
+                clienteService.findClienteViews(findClientesQuery, clienteFields);
+        return ResponseEntity.ok()
+                .eTag(
+                        ETagUtils.ofViews(
+                                result.data(),
+                                clienteFields,
+                                result.pageNumber(),
+                                result.totalElements(),
+                                result.hasNext(),
+                                result.countStrategy()))
+                .body(result);
+    }
+
+    /**
+     * Keyset mode of the listing, selected by the presence of {@code after}: send it empty for the
+     * first page and then the {@code nextCursor} of the previous response.
+     */
+    @GetMapping(params = {"after", "!fields"})
+    public ResponseEntity<CursorResult<Cliente>> getClientesAfter(
+            @RequestParam(value = "after") String after,
             @RequestParam(
                             value = "pageSize",
                             defaultValue = AppConstants.DEFAULT_PAGE_SIZE,
@@ -54,45 +195,224 @@ public class ClienteController {
                             defaultValue = AppConstants.DEFAULT_SORT_DIRECTION,
                             required = false)
                     String sortDir) {
-        return clienteService.findAllClientes(pageNo, pageSize, sortBy, sortDir);
+        CursorResult<Cliente> result =
+                clienteService.findClientesAfter(after, pageSize, sortBy, sortDir);
+        return ResponseEntity.ok()
+                .eTag(ETagUtils.of(result.data(), result.pageSize(), result.nextCursor()))
+                .body(result);
     }
 
+    /** Keyset mode of the listing with only the comma-separated {@code fields}, see above. */
+    @GetMapping(params = {"after", "fields"})
+    public ResponseEntity<CursorResult<ClienteView>> getClienteViewsAfter(
+            @RequestParam(value = "after") String after,
+            @RequestParam(value = "fields") String fields,
+            @RequestParam(
+                            value = "pageSize",
+                            defaultValue = AppConstants.DEFAULT_PAGE_SIZE,
+                            required = false)
+                    int pageSize,
+            @RequestParam(
+                            value = "sortBy",
+                            defaultValue = AppConstants.DEFAULT_SORT_BY,
+                            required = false)
+                    String sortBy,
+            @RequestParam(
+                            value = "sortDir",
+                            defaultValue = AppConstants.DEFAULT_SORT_DIRECTION,
+                            required = false)
+                    String sortDir) {
+        Set<ClienteField> clienteFields = ClienteField.parse(fields);
+        CursorResult<ClienteView> result =
+                clienteService.findClienteViewsAfter(
+                        after, pageSize, sortBy, sortDir, clienteFields);
+        return ResponseEntity.ok()
+                .eTag(
+                        ETagUtils.ofViews(
+                                result.data(),
+                                clienteFields,
+                                result.pageSize(),
+                                result.nextCursor()))
+                .body(result);
+    }
+
+    /**
+     * Clientes whose text has a word starting with each word of {@code q}, best matches first.
+     * Pages with the {@code nextCursor} of the previous response.
+     */
+    @GetMapping("/search")
+    public CursorResult<Cliente> searchClientes(
+            @RequestParam(value = "q") String q,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(
+                            value = "pageSize",
+                            defaultValue = AppConstants.DEFAULT_PAGE_SIZE,
+                            required = false)
+                    int pageSize) {
+        return clienteSearchService.searchClientes(q, after, pageSize);
+    }
+
+    /**
+     * Server-sent {@code created}, {@code updated} and {@code deleted} events for every committed
+     * write. Reconnecting with {@code Last-Event-ID} resumes after that event, or starts with a
+     * {@code reset} event when it can no longer be resumed from.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(
+            @RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventId) {
+        return clienteChangeFeed.subscribe(lastEventId);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportClientes(
+            @RequestParam(value = "format", defaultValue = "ndjson", required = false)
+                    String format) {
+        DataFormat dataFormat = DataFormat.from(format);
+        StreamingResponseBody body =
+                outputStream -> clienteExportService.exportClientes(dataFormat, outputStream);
+        return ResponseEntity.ok()
+                .contentType(dataFormat.getMediaType())
+                .header(
+                        HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment()
+                                .filename("clientes." + dataFormat.getExtension())
+                                .build()
+                                .toString())
+                .body(body);
+    }
+
+    /**
+     * With {@code If-None-Match}, the current version is looked up first and a match is answered
+     * with 304 without loading the cliente.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<Cliente> getClienteById(@PathVariable Long id) {
+    public ResponseEntity<Cliente> getClienteById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                    String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<String> etag = clienteService.findClienteVersion(id).map(ETagUtils::of);
+            if (etag.isPresent() && ETagUtils.matches(ifNoneMatch, etag.get())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.get()).build();
+            }
+        }
         return clienteService
                 .findClienteById(id)
-                .map(ResponseEntity::ok)
+                .map(ClienteController::withETag)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /**
+     * With {@code Prefer: respond-async} and write-behind enabled, the cliente is only logged and
+     * queued: 202 with the id it will have, readable at its Location once the writer inserted it.
+     */
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public Cliente createCliente(@RequestBody @Validated Cliente cliente) {
-        return clienteService.saveCliente(cliente);
+    public ResponseEntity<Cliente> createCliente(
+            @RequestBody @Validated Cliente cliente,
+            @RequestHeader(value = PREFER, required = false) String prefer) {
+        if (prefersAsync(prefer) && clienteWriteBehindQueue.isEnabled()) {
+            Cliente queued = clienteWriteBehindQueue.enqueue(cliente.getText());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/" + queued.getId()))
+                    .header(PREFERENCE_APPLIED, RESPOND_ASYNC)
+                    .body(queued);
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(clienteService.saveCliente(cliente));
+    }
+
+    @GetMapping("/write-behind")
+    public WriteBehindStatus getWriteBehindStatus() {
+        return clienteWriteBehindQueue.getStatus();
+    }
+
+    @PostMapping("/batch")
+    public BatchResult createClientes(@RequestBody List<Cliente> clientes) {
+        return clienteService.saveAll(clientes);
+    }
+
+    /**
+     * Imports the body and answers once it is consumed. A caller that wants to follow the progress
+     * meanwhile picks the job id itself and sends it in {@code Import-Id}; {@code GET
+     * /import/{jobId}} knows the job from the first row on.
+     */
+    @PostMapping(
+            value = "/import",
+            consumes = {DataFormat.NDJSON_VALUE, DataFormat.CSV_VALUE})
+    public ResponseEntity<ImportJobStatus> importClientes(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @RequestHeader(value = IMPORT_ID, required = false) UUID importId,
+            InputStream body) {
+        DataFormat dataFormat = DataFormat.from(MediaType.parseMediaType(contentType));
+        ImportJobStatus importJobStatus =
+                clienteImportService.importClientes(
+                        importId != null ? importId : UUID.randomUUID(), dataFormat, body);
+        return ResponseEntity.ok()
+                .location(URI.create("/import/" + importJobStatus.jobId()))
+                .body(importJobStatus);
+    }
+
+    @GetMapping("/import")
+    public List<ImportJobStatus> getImportJobs() {
+        return clienteImportService.findImportJobs();
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<ImportJobStatus> getImportJob(@PathVariable UUID jobId) {
+        return clienteImportService
+                .findImportJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<Cliente> updateCliente(
-            @PathVariable Long id, @RequestBody Cliente cliente) {
+            @PathVariable Long id,
+            @RequestBody @Validated Cliente cliente,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         return clienteService
-                .findClienteById(id)
-                .map(
-                        clienteObj -> {
-                            cliente.setId(id);
-                            return ResponseEntity.ok(clienteService.saveCliente(cliente));
-                        })
+                .updateCliente(id, cliente, ETagUtils.parseVersion(ifMatch))
+                .map(ClienteController::withETag)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PatchMapping(
+            value = "/{id}",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, "application/merge-patch+json"})
+    public ResponseEntity<Cliente> patchCliente(
+            @PathVariable Long id,
+            @RequestBody @Validated ClientePatch patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return clienteService
+                .patchCliente(id, patch, ETagUtils.parseVersion(ifMatch))
+                .map(ClienteController::withETag)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Cliente> deleteCliente(@PathVariable Long id) {
         return clienteService
-                .findClienteById(id)
-                .map(
-                        cliente -> {
-                            clienteService.deleteClienteById(id);
-                            return ResponseEntity.ok(cliente);
-                        })
+                .deleteClienteById(id)
+                .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
+
+    private static boolean prefersAsync(String prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        for (String preference : prefer.split(",")) {
+            if (preference.trim().equalsIgnoreCase(RESPOND_ASYNC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ResponseEntity<Cliente> withETag(Cliente cliente) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (cliente.getVersion() != null) {
+            response.eTag(ETagUtils.of(cliente.getVersion()));
+        }
+        return response.body(cliente);
+    }
 }
@@ -0,0 +1,86 @@
+package liqui.web.interceptors;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import liqui.config.ApplicationProperties;
+
+/**
+ * Additive increase, multiplicative decrease of a concurrency limit driven by latency rather than
+ * errors. Two moving averages of the latency are kept, over about the last ten requests and about
+ * the last few hundred. When the short one exceeds {@code tolerance} times the long one, requests
+ * queue somewhere behind us and the limit shrinks, at most once per long average so that one slow
+ * spell counts once; otherwise it grows by {@code 1 / limit}, about one per window of requests, as
+ * long as the limit is actually used. Comparing averages rather than single requests keeps a mix of
+ * fast and slow endpoints from looking like congestion, and a lasting change of the workload ends
+ * up in the long average and becomes the new normal.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private static final double SHORT_WEIGHT = 0.1;
+    private static final double LONG_WEIGHT = 0.005;
+
+    private final ApplicationProperties.ConcurrencyLimit config;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+
+    /** Averages in nanoseconds and the time of the last decrease, guarded by {@code this}. */
+    private double shortNanos;
+
+    private double longNanos;
+    private long lastDecrease;
+    private boolean decreased;
+
+    AdaptiveConcurrencyLimit(ApplicationProperties.ConcurrencyLimit config) {
+        this.config = config;
+        this.limit = config.getInitialLimit();
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /** Gives back a slot without telling anything about latency, like an async request. */
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /** Gives back the slot of a request that took {@code latencyNanos}, as of {@code now}. */
+    void release(long latencyNanos, long now) {
+        int used = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (longNanos == 0) {
+                shortNanos = latencyNanos;
+                longNanos = latencyNanos;
+            } else {
+                shortNanos += (latencyNanos - shortNanos) * SHORT_WEIGHT;
+                longNanos += (latencyNanos - longNanos) * LONG_WEIGHT;
+            }
+            double current = limit;
+            if (shortNanos > config.getTolerance() * longNanos) {
+                if (!decreased || now - lastDecrease >= longNanos) {
+                    decreased = true;
+                    lastDecrease = now;
+                    limit = Math.max(config.getMinLimit(), current * config.getBackoff());
+                }
+            } else if (used * 2 >= current) {
+                limit = Math.min(config.getMaxLimit(), current + 1 / current);
+            }
+        }
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+}
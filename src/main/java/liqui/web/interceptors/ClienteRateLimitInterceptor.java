@@ -0,0 +1,131 @@
+package liqui.web.interceptors;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import liqui.config.ApplicationProperties;
+import liqui.exception.ServiceUnavailableException;
+import liqui.exception.TooManyRequestsException;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Sheds requests before they reach the controller and the connection pool: first the token bucket
+ * of the client, a 429 once it is empty, then the {@link AdaptiveConcurrencyLimit}, a 503 once it
+ * is reached. Either is optional. Latency is measured from here to the completion of the request,
+ * so it is mostly the time spent in {@code ClienteService} and the database. An async request, an
+ * export or a change stream, gives its slot back as soon as it goes async and tells nothing about
+ * latency.
+ *
+ * <p>Only the API keys of {@code application.rate-limit.api-keys} get a bucket of their own; an
+ * unknown key counts against the address of the client, as no key does, or a client could get
+ * around its limit and evict the buckets of others by sending a new key with every request.
+ *
+ * <p>Published as {@code ratelimit.rejected} tagged by {@code reason}, {@code ratelimit.clients},
+ * and {@code concurrency.limit} and {@code concurrency.in-flight}.
+ */
+public class ClienteRateLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String STARTED_AT = ClienteRateLimitInterceptor.class.getName() + ".start";
+
+    private final ApplicationProperties.RateLimit rateLimit;
+    private final ApplicationProperties.ConcurrencyLimit concurrencyLimit;
+    private final Cache<String, TokenBucket> buckets;
+    private final AdaptiveConcurrencyLimit limit;
+    private final Counter rateRejected;
+    private final Counter concurrencyRejected;
+
+    public ClienteRateLimitInterceptor(
+            ApplicationProperties properties, MeterRegistry meterRegistry) {
+        this.rateLimit = properties.getRateLimit();
+        this.concurrencyLimit = properties.getConcurrencyLimit();
+        this.buckets =
+                Caffeine.newBuilder()
+                        .maximumSize(rateLimit.getMaxClients())
+                        .expireAfterAccess(rateLimit.getIdleTimeout())
+                        .build();
+        this.limit = new AdaptiveConcurrencyLimit(concurrencyLimit);
+        Gauge.builder("ratelimit.clients", buckets, Cache::estimatedSize)
+                .description("Clients with a token bucket")
+                .register(meterRegistry);
+        Gauge.builder("concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .register(meterRegistry);
+        Gauge.builder("concurrency.in-flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                .register(meterRegistry);
+        this.rateRejected = meterRegistry.counter("ratelimit.rejected", "reason", "rate");
+        this.concurrencyRejected =
+                meterRegistry.counter("ratelimit.rejected", "reason", "concurrency");
+    }
+
+    @Override
+    public boolean preHandle(
+            HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST
+                || CorsUtils.isPreFlightRequest(request)) {
+            // the async dispatch of a request that was already admitted, or a CORS preflight
+            return true;
+        }
+        long now = System.nanoTime();
+        if (rateLimit.isEnabled()) {
+            long waitNanos = bucket(request, now).tryAcquire(now);
+            if (waitNanos > 0) {
+                rateRejected.increment();
+                throw new TooManyRequestsException(
+                        "Request rate limit exceeded", Duration.ofNanos(waitNanos));
+            }
+        }
+        if (concurrencyLimit.isEnabled()) {
+            if (!limit.tryAcquire()) {
+                concurrencyRejected.increment();
+                throw new ServiceUnavailableException(
+                        "Too many requests in progress", concurrencyLimit.getRetryDelay());
+            }
+            request.setAttribute(STARTED_AT, now);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(
+            HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(STARTED_AT) != null) {
+            request.removeAttribute(STARTED_AT);
+            limit.release();
+        }
+    }
+
+    @Override
+    public void afterCompletion(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            Object handler,
+            Exception ex) {
+        if (request.getAttribute(STARTED_AT) instanceof Long startedAt) {
+            request.removeAttribute(STARTED_AT);
+            long now = System.nanoTime();
+            limit.release(now - startedAt, now);
+        }
+    }
+
+    private TokenBucket bucket(HttpServletRequest request, long now) {
+        String apiKey = request.getHeader(rateLimit.getApiKeyHeader());
+        ApplicationProperties.RateLimit.Limit limit =
+                apiKey == null ? null : rateLimit.getApiKeys().get(apiKey);
+        if (limit == null) {
+            return buckets.get(
+                    "ip:" + request.getRemoteAddr(),
+                    key -> newBucket(rateLimit.getDefaults(), now));
+        }
+        return buckets.get("key:" + apiKey, key -> newBucket(limit, now));
+    }
+
+    private static TokenBucket newBucket(ApplicationProperties.RateLimit.Limit limit, long now) {
+        return new TokenBucket(limit.getBurst(), limit.getRate(), now);
+    }
+}
@@ -0,0 +1,36 @@
+package liqui.web.interceptors;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket kept as a single timestamp, the generic cell rate algorithm: the bucket is full when
+ * the theoretical arrival time of the next request is not ahead of now, and every request pushes it
+ * one emission interval further. Taking a token is one compare-and-set.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    TokenBucket(int burst, double rate, long now) {
+        this.intervalNanos = Math.max(1, (long) (1e9 / rate));
+        this.toleranceNanos = burst * intervalNanos;
+        this.theoreticalArrival = new AtomicLong(now);
+    }
+
+    /** Takes a token, returning 0, or returns the nanoseconds until one will be available. */
+    long tryAcquire(long now) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long wait = next - now - toleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
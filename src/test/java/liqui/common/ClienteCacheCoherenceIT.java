@@ -0,0 +1,84 @@
+package liqui.common;
+
+import static liqui.utils.AppConstants.PROFILE_TEST;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.time.Duration;
+import java.util.Optional;
+import liqui.Application;
+import liqui.entities.Cliente;
+import liqui.services.ClienteService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/** Two application contexts sharing one database, standing in for two replicas. */
+class ClienteCacheCoherenceIT {
+
+    private static ConfigurableApplicationContext first;
+    private static ConfigurableApplicationContext second;
+
+    @BeforeAll
+    static void startReplicas() {
+        first = startReplica();
+        second = startReplica();
+    }
+
+    @AfterAll
+    static void stopReplicas() {
+        if (second != null) {
+            second.close();
+        }
+        if (first != null) {
+            first.close();
+        }
+    }
+
+    @Test
+    void shouldEvictUpdatedClienteOnTheOtherReplica() {
+        ClienteService firstService = first.getBean(ClienteService.class);
+        ClienteService secondService = second.getBean(ClienteService.class);
+        Cliente cliente = firstService.saveCliente(new Cliente(null, "before"));
+        assertThat(secondService.findClienteById(cliente.getId()))
+                .map(Cliente::getText)
+                .contains("before");
+
+        firstService.updateCliente(cliente.getId(), new Cliente(null, "after"), null);
+
+        await().atMost(Duration.ofSeconds(10))
+                .untilAsserted(
+                        () ->
+                                assertThat(secondService.findClienteById(cliente.getId()))
+                                        .map(Cliente::getText)
+                                        .contains("after"));
+    }
+
+    @Test
+    void shouldEvictDeletedClienteOnTheOtherReplica() {
+        ClienteService firstService = first.getBean(ClienteService.class);
+        ClienteService secondService = second.getBean(ClienteService.class);
+        Cliente cliente = firstService.saveCliente(new Cliente(null, "to delete"));
+        assertThat(secondService.findClienteById(cliente.getId())).isPresent();
+
+        firstService.deleteClienteById(cliente.getId());
+
+        await().atMost(Duration.ofSeconds(10))
+                .untilAsserted(
+                        () ->
+                                assertThat(secondService.findClienteById(cliente.getId()))
+                                        .isEqualTo(Optional.empty()));
+    }
+
+    private static ConfigurableApplicationContext startReplica() {
+        return new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .profiles(PROFILE_TEST)
+                .initializers(new DBContainerInitializer())
+                .properties("spring.jmx.enabled=false")
+                .run();
+    }
+}
@@ -0,0 +1,65 @@
+package liqui.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.List;
+import liqui.entities.Cliente;
+import org.junit.jupiter.api.Test;
+
+class ClienteJsonCacheConfigTest {
+
+    private final Cache<ClienteJsonCacheConfig.Key, SerializedString> cache =
+            Caffeine.newBuilder().build();
+    private final ObjectMapper objectMapper =
+            new ObjectMapper().registerModule(ClienteJsonCacheConfig.module(cache));
+
+    @Test
+    void shouldWriteTheSameJsonAsWithoutTheCache() throws Exception {
+        // given
+        List<Cliente> clientes = List.of(new Cliente(1L, "one", 0L), new Cliente(2L, "two", 3L));
+        // when
+        String json = objectMapper.writeValueAsString(clientes);
+        // then
+        assertThat(json).isEqualTo(new ObjectMapper().writeValueAsString(clientes));
+        assertThat(cache.estimatedSize()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReuseTheJsonOfTheSameVersion() throws Exception {
+        // given
+        objectMapper.writeValueAsString(new Cliente(1L, "one", 0L));
+        // when
+        String sameVersion = objectMapper.writeValueAsString(new Cliente(1L, "changed", 0L));
+        String nextVersion = objectMapper.writeValueAsString(new Cliente(1L, "changed", 1L));
+        // then
+        assertThat(sameVersion).contains("\"one\"");
+        assertThat(nextVersion).contains("\"changed\"");
+    }
+
+    @Test
+    void shouldNotCacheUnversionedClientes() throws Exception {
+        // when
+        objectMapper.writeValueAsString(new Cliente(1L, "one"));
+        String json = objectMapper.writeValueAsString(new Cliente(1L, "changed"));
+        // then
+        assertThat(json).contains("\"changed\"");
+        assertThat(cache.estimatedSize()).isZero();
+    }
+
+    @Test
+    void shouldBypassTheCacheWhenAsked() throws Exception {
+        // when
+        String json =
+                objectMapper
+                        .writer()
+                        .withAttribute(ClienteJsonCacheConfig.BYPASS, Boolean.TRUE)
+                        .writeValueAsString(new Cliente(1L, "one", 0L));
+        // then
+        assertThat(json).contains("\"one\"");
+        assertThat(cache.estimatedSize()).isZero();
+    }
+}
@@ -0,0 +1,60 @@
+package liqui.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.times;
+import static org.mockito.BDDMockito.verify;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ConnectionGateDataSourceTest {
+
+    @Mock private DataSource pool;
+    @Mock private Connection connection;
+
+    @Test
+    void shouldRejectCallersBeyondThePermitsUntilAConnectionIsClosed() throws SQLException {
+        // given
+        given(pool.getConnection()).willReturn(connection);
+        ConnectionGateDataSource gate =
+                new ConnectionGateDataSource(
+                        pool, "primary", 1, Duration.ofMillis(10), new SimpleMeterRegistry());
+
+        // when
+        Connection first = gate.getConnection();
+
+        // then
+        assertThatThrownBy(gate::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        first.close();
+        first.close();
+        gate.getConnection().close();
+        verify(connection, times(3)).close();
+        assertThat(gate.getConnection()).isNotNull();
+    }
+
+    @Test
+    void shouldReleaseThePermitWhenThePoolFails() throws SQLException {
+        // given
+        given(pool.getConnection()).willThrow(new SQLException("down")).willReturn(connection);
+        ConnectionGateDataSource gate =
+                new ConnectionGateDataSource(
+                        pool, "primary", 1, Duration.ofMillis(10), new SimpleMeterRegistry());
+
+        // when
+        assertThatThrownBy(gate::getConnection).hasMessage("down");
+
+        // then
+        assertThat(gate.getConnection()).isNotNull();
+    }
+}
@@ -0,0 +1,106 @@
+package liqui.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@ExtendWith(MockitoExtension.class)
+class ReadWriteRoutingDataSourceTest {
+
+    @Mock private DataSource primary;
+    @Mock private DataSource replica;
+    @Mock private Connection primaryConnection;
+    @Mock private Connection replicaConnection;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void shouldRouteReadWriteTransactionsToThePrimary() throws SQLException {
+        // given
+        given(primary.getConnection()).willReturn(primaryConnection);
+        ReadWriteRoutingDataSource dataSource =
+                new ReadWriteRoutingDataSource(primary, replica, meterRegistry);
+        // when
+        Connection connection = dataSource.getConnection();
+        // then
+        assertThat(connection).isSameAs(primaryConnection);
+        assertThat(count("primary")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRouteReadOnlyTransactionsToTheReplica() throws SQLException {
+        // given
+        given(replica.getConnection()).willReturn(replicaConnection);
+        ReadWriteRoutingDataSource dataSource =
+                new ReadWriteRoutingDataSource(primary, replica, meterRegistry);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        // when
+        Connection connection = dataSource.getConnection();
+        // then
+        assertThat(connection).isSameAs(replicaConnection);
+        assertThat(count("replica")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFallBackToThePrimaryWhenTheReplicaFails() throws SQLException {
+        // given
+        given(replica.getConnection()).willThrow(new SQLException("down"));
+        given(primary.getConnection()).willReturn(primaryConnection);
+        ReadWriteRoutingDataSource dataSource =
+                new ReadWriteRoutingDataSource(primary, replica, meterRegistry);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        // when
+        Connection connection = dataSource.getConnection();
+        // then
+        assertThat(connection).isSameAs(primaryConnection);
+        assertThat(count("fallback")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldUseThePrimaryWithoutReplica() throws SQLException {
+        // given
+        given(primary.getConnection()).willReturn(primaryConnection);
+        ReadWriteRoutingDataSource dataSource =
+                new ReadWriteRoutingDataSource(primary, null, meterRegistry);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        // when
+        Connection connection = dataSource.getConnection();
+        // then
+        assertThat(connection).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void shouldRefuseCredentialsAsAnUnsupportedFeature() {
+        // given
+        ReadWriteRoutingDataSource dataSource =
+                new ReadWriteRoutingDataSource(primary, replica, meterRegistry);
+        // when, then
+        assertThatThrownBy(() -> dataSource.getConnection("user", "secret"))
+                .isInstanceOf(SQLFeatureNotSupportedException.class);
+    }
+
+    private double count(String target) {
+        return meterRegistry
+                .get(ReadWriteRoutingDataSource.ROUTING_METER)
+                .tag("target", target)
+                .counter()
+                .count();
+    }
+}
@@ -0,0 +1,119 @@
+package liqui.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.sql.DataSource;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.mock.env.MockEnvironment;
+
+class SchemaFingerprintTest {
+
+    private static final String CHANGE_LOG = "classpath:/db/changelog/db.changelog-master.yaml";
+
+    private EmbeddedDatabase dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource =
+                new EmbeddedDatabaseBuilder()
+                        .setType(EmbeddedDatabaseType.H2)
+                        .generateUniqueName(true)
+                        .build();
+        new JdbcTemplate(dataSource)
+                .execute(
+                        "create table schema_fingerprint (id int primary key,"
+                                + " fingerprint varchar(64) not null,"
+                                + " migrated_at timestamp default CURRENT_TIMESTAMP not null)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.shutdown();
+    }
+
+    @Test
+    void shouldMigrateAndRecordTheFingerprintFirst() {
+        // given
+        SpringLiquibase liquibase = liquibase(dataSource);
+        // when
+        Map<String, Object> hibernateProperties = start(true, liquibase);
+        // then
+        verify(liquibase, never()).setShouldRun(anyBoolean());
+        assertThat(hibernateProperties).isEmpty();
+        assertThat(recorded()).isEqualTo(SchemaFingerprint.compute(CHANGE_LOG));
+    }
+
+    @Test
+    void shouldSkipLiquibaseAndValidationOnceRecorded() {
+        // given
+        start(true, liquibase(dataSource));
+        SpringLiquibase liquibase = liquibase(dataSource);
+        // when
+        Map<String, Object> hibernateProperties = start(true, liquibase);
+        // then
+        verify(liquibase).setShouldRun(false);
+        assertThat(hibernateProperties).containsEntry("hibernate.hbm2ddl.auto", "none");
+    }
+
+    @Test
+    void shouldMigrateWhenTheFingerprintDiffers() {
+        // given
+        new JdbcTemplate(dataSource)
+                .update("insert into schema_fingerprint (id, fingerprint) values (1, 'previous')");
+        // when
+        start(true, liquibase(dataSource));
+        // then
+        assertThat(recorded()).isEqualTo(SchemaFingerprint.compute(CHANGE_LOG));
+    }
+
+    @Test
+    void shouldDoNothingUnlessEnabled() {
+        // given
+        start(true, liquibase(dataSource));
+        SpringLiquibase liquibase = liquibase(dataSource);
+        // when
+        Map<String, Object> hibernateProperties = start(false, liquibase);
+        // then
+        verify(liquibase, never()).setShouldRun(anyBoolean());
+        assertThat(hibernateProperties).isEmpty();
+    }
+
+    /** What the context does: Liquibase initialized, then the entity manager factory built. */
+    private static Map<String, Object> start(boolean enabled, SpringLiquibase liquibase) {
+        SchemaFingerprint schemaFingerprint = new SchemaFingerprint();
+        schemaFingerprint.setEnvironment(
+                new MockEnvironment()
+                        .withProperty(SchemaFingerprint.ENABLED_PROPERTY, String.valueOf(enabled)));
+        schemaFingerprint.postProcessBeforeInitialization(liquibase, "liquibase");
+        schemaFingerprint.postProcessAfterInitialization(liquibase, "liquibase");
+        Map<String, Object> hibernateProperties = new HashMap<>();
+        schemaFingerprint.customize(hibernateProperties);
+        return hibernateProperties;
+    }
+
+    private static SpringLiquibase liquibase(DataSource dataSource) {
+        SpringLiquibase liquibase = mock(SpringLiquibase.class);
+        given(liquibase.getChangeLog()).willReturn(CHANGE_LOG);
+        given(liquibase.getDataSource()).willReturn(dataSource);
+        return liquibase;
+    }
+
+    private String recorded() {
+        return new JdbcTemplate(dataSource)
+                .queryForObject("select fingerprint from schema_fingerprint", String.class);
+    }
+}
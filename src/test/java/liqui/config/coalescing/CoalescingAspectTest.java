@@ -0,0 +1,166 @@
+package liqui.config.coalescing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import liqui.config.ApplicationProperties;
+import liqui.model.event.ClientesChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+class CoalescingAspectTest {
+
+    private static final int CALLERS = 8;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ApplicationProperties properties;
+    private Target target;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new ApplicationProperties();
+        target = new Target();
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldShareOneExecutionBetweenConcurrentCalls() throws Exception {
+        // given
+        Target proxy = proxy();
+        List<Future<List<Long>>> calls = new ArrayList<>();
+        // when
+        for (int i = 0; i < CALLERS; i++) {
+            calls.add(executor.submit(() -> proxy.find(1L)));
+        }
+        awaitCallers();
+        target.release.countDown();
+        // then
+        List<Long> first = calls.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<List<Long>> call : calls) {
+            assertThat(call.get(5, TimeUnit.SECONDS)).isSameAs(first);
+        }
+        assertThat(target.executions).hasValue(1);
+        assertThat(count("executed")).isEqualTo(1);
+        assertThat(count("joined")).isEqualTo(CALLERS - 1);
+    }
+
+    @Test
+    void shouldShareTheFailureOfTheExecution() throws Exception {
+        // given
+        Target proxy = proxy();
+        target.failure = new IllegalStateException("database down");
+        Future<List<Long>> leader = executor.submit(() -> proxy.find(1L));
+        Future<List<Long>> follower = executor.submit(() -> proxy.find(1L));
+        // when
+        awaitCallers(2);
+        target.release.countDown();
+        // then
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(target.executions).hasValue(1);
+    }
+
+    @Test
+    void shouldExecuteCallsWithOtherArgumentsOrAfterCompletion() {
+        // given
+        Target proxy = proxy();
+        target.release.countDown();
+        // when
+        proxy.find(1L);
+        proxy.find(2L);
+        proxy.find(1L);
+        // then
+        assertThat(target.executions).hasValue(3);
+        assertThat(count("joined")).isZero();
+    }
+
+    @Test
+    void shouldHandOutRecentResultsUntilAChange() {
+        // given
+        properties.getCoalescing().setWindow(Duration.ofMinutes(1));
+        CoalescingAspect aspect = new CoalescingAspect(properties, meterRegistry);
+        Target proxy = proxy(aspect);
+        target.release.countDown();
+        // when
+        List<Long> first = proxy.find(1L);
+        List<Long> recent = proxy.find(1L);
+        aspect.onClientesChanged(ClientesChangedEvent.deleted(1L));
+        List<Long> afterChange = proxy.find(1L);
+        // then
+        assertThat(recent).isSameAs(first);
+        assertThat(afterChange).isNotSameAs(first);
+        assertThat(target.executions).hasValue(2);
+        assertThat(count("recent")).isEqualTo(1);
+    }
+
+    private void awaitCallers() throws InterruptedException {
+        awaitCallers(CALLERS);
+    }
+
+    /** Waits for the execution to start and the other callers to queue behind it. */
+    private void awaitCallers(int callers) throws InterruptedException {
+        assertThat(target.started.await(5, TimeUnit.SECONDS)).isTrue();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count("joined") < callers - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("coalescing.calls").tag("result", result).counter().count();
+    }
+
+    private Target proxy() {
+        return proxy(new CoalescingAspect(properties, meterRegistry));
+    }
+
+    private Target proxy(CoalescingAspect aspect) {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(aspect);
+        return proxyFactory.getProxy();
+    }
+
+    static class Target {
+        final AtomicInteger executions = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        RuntimeException failure;
+
+        @Coalesced
+        public List<Long> find(Long id) {
+            executions.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return List.of(id);
+        }
+    }
+}
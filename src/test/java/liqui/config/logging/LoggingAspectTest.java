@@ -0,0 +1,115 @@
+package liqui.config.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import liqui.config.ApplicationProperties;
+import liqui.entities.Cliente;
+import liqui.exception.PreconditionFailedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.core.env.StandardEnvironment;
+
+@ExtendWith(OutputCaptureExtension.class)
+class LoggingAspectTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ApplicationProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new ApplicationProperties();
+    }
+
+    @Test
+    void shouldRecordCallsPerMethod() {
+        Target target = proxy();
+
+        target.work(1L);
+        target.work(2L);
+
+        Timer timer =
+                meterRegistry
+                        .get(LoggingAspect.METER_NAME)
+                        .tag("class", "Target")
+                        .tag("method", "work")
+                        .tag("exception", "none")
+                        .timer();
+        assertThat(timer.count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldTagFailedCallsWithTheException() {
+        Target target = proxy();
+
+        assertThatThrownBy(target::fail).isInstanceOf(IllegalStateException.class);
+
+        assertThat(
+                        meterRegistry
+                                .get(LoggingAspect.METER_NAME)
+                                .tag("method", "fail")
+                                .tag("exception", "IllegalStateException")
+                                .timer()
+                                .count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldLogUnexpectedExceptionsOnly(CapturedOutput output) {
+        Target target = proxy();
+
+        assertThatThrownBy(target::reject).isInstanceOf(PreconditionFailedException.class);
+        assertThat(output).doesNotContain("Exception in");
+
+        assertThatThrownBy(target::fail).isInstanceOf(IllegalStateException.class);
+        assertThat(output).contains("Exception in").contains("fail()");
+    }
+
+    @Test
+    void shouldSkipCallsLeftOutBySampling() {
+        properties.getLogging().setSampleRate(0.0);
+        Target target = proxy();
+
+        target.work(1L);
+
+        assertThat(meterRegistry.find(LoggingAspect.METER_NAME).timer()).isNull();
+    }
+
+    @Test
+    void shouldRedactArguments() {
+        assertThat(
+                        LoggingAspect.redact(
+                                new Object[] {42L, null, true, "secret", new Cliente(1L, "x")}))
+                .isEqualTo("42, null, true, String[redacted], Cliente[redacted]");
+    }
+
+    private Target proxy() {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new Target());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(
+                new LoggingAspect(new StandardEnvironment(), meterRegistry, properties));
+        return proxyFactory.getProxy();
+    }
+
+    @Loggable
+    static class Target {
+        public long work(long value) {
+            return value * 2;
+        }
+
+        public void fail() {
+            throw new IllegalStateException("boom");
+        }
+
+        public void reject() {
+            throw new PreconditionFailedException("stale");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package liqui.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import liqui.config.ApplicationProperties;
+import liqui.entities.Cliente;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ClienteCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ClienteCache clienteCache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        clienteCache = new ClienteCache(new ApplicationProperties(), meterRegistry);
+    }
+
+    @Test
+    void shouldLoadOnceAndServeHits() {
+        clienteCache.get(1L, this::load);
+        Optional<Cliente> cliente = clienteCache.get(1L, this::load);
+
+        assertThat(cliente).map(Cliente::getText).contains("cliente 1");
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldCacheMisses() {
+        clienteCache.get(404L, id -> load(id).filter(c -> false));
+        Optional<Cliente> cliente = clienteCache.get(404L, this::load);
+
+        assertThat(cliente).isEmpty();
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void shouldReloadAfterInvalidation() {
+        clienteCache.get(1L, this::load);
+        clienteCache.invalidate(1L);
+        clienteCache.get(1L, this::load);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void shouldKeepEntriesAtOrPastTheNotifiedVersion() {
+        clienteCache.get(1L, this::load);
+        clienteCache.evictStale(1L, 3L);
+        clienteCache.get(1L, this::load);
+        assertThat(loads).hasValue(1);
+
+        clienteCache.evictStale(1L, 4L);
+        clienteCache.get(1L, this::load);
+        assertThat(loads).hasValue(2);
+
+        clienteCache.evictStale(1L, null);
+        clienteCache.get(1L, this::load);
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void shouldPeekVersionWithoutLoading() {
+        assertThat(clienteCache.peekVersion(1L)).isEmpty();
+        clienteCache.get(1L, this::load);
+
+        assertThat(clienteCache.peekVersion(1L)).contains(3L);
+        assertThat(loads).hasValue(1);
+    }
+
+    private Optional<Cliente> load(Long id) {
+        loads.incrementAndGet();
+        return Optional.of(new Cliente(id, "cliente " + id, 3L));
+    }
+}
@@ -0,0 +1,152 @@
+package liqui.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import liqui.config.ApplicationProperties;
+import liqui.entities.Cliente;
+import liqui.exception.ServiceUnavailableException;
+import liqui.model.event.ClientesChangedEvent;
+import liqui.web.controllers.ClienteController;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+class ClienteChangeFeedTest {
+
+    private static final Pattern EVENT_ID = Pattern.compile("id:(\\S+)");
+
+    private ApplicationProperties properties;
+    private ClienteChangeFeed feed;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ApplicationProperties();
+        properties.getChanges().setBufferSize(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.stop();
+    }
+
+    @Test
+    void shouldStreamCommittedChanges() throws Exception {
+        start();
+        MockHttpServletResponse stream = open(null);
+
+        feed.onClientesChanged(ClientesChangedEvent.saved(new Cliente(1L, "first", 0L)));
+        feed.onClientesChanged(ClientesChangedEvent.saved(new Cliente(1L, "changed", 1L)));
+        feed.onClientesChanged(ClientesChangedEvent.deleted(1L));
+
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> stream.getContentAsString().contains("event:deleted"));
+        assertThat(stream.getContentAsString())
+                .contains(
+                        "event:created\ndata:{\"type\":\"created\",\"id\":1,\"text\":\"first\",\"version\":0}")
+                .contains(
+                        "event:updated\ndata:{\"type\":\"updated\",\"id\":1,\"text\":\"changed\",\"version\":1}")
+                .contains("event:deleted\ndata:{\"type\":\"deleted\",\"id\":1}");
+    }
+
+    @Test
+    void shouldResumeAfterLastEventId() throws Exception {
+        start();
+        MockHttpServletResponse first = open(null);
+        feed.onClientesChanged(ClientesChangedEvent.saved(new Cliente(1L, "one", 0L)));
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> first.getContentAsString().contains("event:created"));
+        String lastEventId = lastEventId(first);
+
+        feed.onClientesChanged(ClientesChangedEvent.saved(new Cliente(2L, "two", 0L)));
+        MockHttpServletResponse resumed = open(lastEventId);
+
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> resumed.getContentAsString().contains("\"id\":2"));
+        assertThat(resumed.getContentAsString())
+                .doesNotContain("\"id\":1")
+                .doesNotContain("event:reset");
+    }
+
+    @Test
+    void shouldResetWhenLastEventIdLeftTheBuffer() throws Exception {
+        start();
+        MockHttpServletResponse first = open(null);
+        feed.onClientesChanged(ClientesChangedEvent.saved(new Cliente(1L, "one", 0L)));
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> first.getContentAsString().contains("event:created"));
+        String lastEventId = lastEventId(first);
+        for (long id = 2; id <= 6; id++) {
+            feed.onClientesChanged(ClientesChangedEvent.deleted(id));
+        }
+
+        MockHttpServletResponse resumed = open(lastEventId);
+        MockHttpServletResponse unknown = open("previous-run-42");
+
+        await().atMost(Duration.ofSeconds(5))
+                .until(
+                        () ->
+                                resumed.getContentAsString().contains("event:reset")
+                                        && unknown.getContentAsString().contains("event:reset"));
+        assertThat(resumed.getContentAsString()).doesNotContain("\"id\":2,");
+    }
+
+    @Test
+    void shouldRefuseSubscribersBeyondTheLimit() {
+        properties.getChanges().setMaxSubscribers(2);
+        start();
+        feed.subscribe(null);
+        feed.subscribe(null);
+
+        assertThatThrownBy(() -> feed.subscribe(null))
+                .isInstanceOf(ServiceUnavailableException.class);
+    }
+
+    private void start() {
+        feed = new ClienteChangeFeed(properties, new SimpleMeterRegistry());
+        feed.start();
+        mockMvc =
+                MockMvcBuilders.standaloneSetup(
+                                new ClienteController(
+                                        mock(ClienteService.class),
+                                        mock(ClienteExportService.class),
+                                        mock(ClienteImportService.class),
+                                        mock(ClienteSearchService.class),
+                                        mock(ClienteWriteBehindQueue.class),
+                                        feed))
+                        .build();
+    }
+
+    private MockHttpServletResponse open(String lastEventId) throws Exception {
+        MockHttpServletRequestBuilder builder = get("/changes");
+        if (lastEventId != null) {
+            builder.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+    }
+
+    private static String lastEventId(MockHttpServletResponse response) throws Exception {
+        Matcher matcher = EVENT_ID.matcher(response.getContentAsString());
+        String id = null;
+        while (matcher.find()) {
+            id = matcher.group(1);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,87 @@
+package liqui.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.times;
+import static org.mockito.BDDMockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+import liqui.config.ApplicationProperties;
+import liqui.entities.Cliente;
+import liqui.model.query.DataFormat;
+import liqui.repositories.ClienteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ClienteExportServiceTest {
+
+    @Mock private ClienteRepository clienteRepository;
+
+    @Mock private EntityManager entityManager;
+
+    private ClienteExportService clienteExportService;
+
+    @BeforeEach
+    void setUp() {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getExport().setClearInterval(2);
+        clienteExportService =
+                new ClienteExportService(
+                        clienteRepository, entityManager, new ObjectMapper(), properties);
+    }
+
+    @Test
+    void exportClientesAsNdjson() throws Exception {
+        // given
+        given(clienteRepository.streamAll(1000)).willReturn(getClientes());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        long count = clienteExportService.exportClientes(DataFormat.NDJSON, outputStream);
+
+        // then
+        assertThat(count).isEqualTo(3);
+        assertThat(outputStream.toString(StandardCharsets.UTF_8))
+                .isEqualTo(
+                        """
+                        {"id":1,"text":"first","version":0}
+                        {"id":2,"text":"with, comma","version":0}
+                        {"id":3,"text":"with \\"quotes\\"","version":2}
+                        """);
+        verify(entityManager, times(1)).clear();
+    }
+
+    @Test
+    void exportClientesAsCsv() throws Exception {
+        // given
+        given(clienteRepository.streamAll(1000)).willReturn(getClientes());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        long count = clienteExportService.exportClientes(DataFormat.CSV, outputStream);
+
+        // then
+        assertThat(count).isEqualTo(3);
+        assertThat(outputStream.toString(StandardCharsets.UTF_8))
+                .isEqualTo(
+                        "id,text\r\n"
+                                + "1,first\r\n"
+                                + "2,\"with, comma\"\r\n"
+                                + "3,\"with \"\"quotes\"\"\"\r\n");
+    }
+
+    private Stream<Cliente> getClientes() {
+        return Stream.of(
+                new Cliente(1L, "first", 0L),
+                new Cliente(2L, "with, comma", 0L),
+                new Cliente(3L, "with \"quotes\"", 2L));
+    }
+}
@@ -0,0 +1,147 @@
+package liqui.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import liqui.config.ApplicationProperties;
+import liqui.entities.Cliente;
+import liqui.exception.BadRequestException;
+import liqui.model.query.DataFormat;
+import liqui.model.response.BatchItemResult;
+import liqui.model.response.BatchResult;
+import liqui.model.response.ImportJobStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.task.TaskExecutorBuilder;
+
+@ExtendWith(MockitoExtension.class)
+class ClienteImportServiceTest {
+
+    @Mock private ClienteService clienteService;
+
+    private ClienteImportService clienteImportService;
+
+    @BeforeEach
+    void setUp() {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getBulkImport().setChunkSize(2);
+        clienteImportService =
+                new ClienteImportService(
+                        clienteService, new ObjectMapper(), properties, new TaskExecutorBuilder());
+    }
+
+    @AfterEach
+    void tearDown() {
+        clienteImportService.destroy();
+    }
+
+    @Test
+    void importClientesFromNdjson() {
+        // given
+        given(clienteService.saveAll(anyList()))
+                .willAnswer(
+                        invocation -> {
+                            List<Cliente> clientes = invocation.getArgument(0);
+                            return new BatchResult(
+                                    clientes.stream()
+                                            .map(
+                                                    cliente ->
+                                                            BatchItemResult.created(
+                                                                    clientes.indexOf(cliente), 1L))
+                                            .toList());
+                        });
+        String body =
+                """
+                {"text":"first"}
+                {"id":"not a number","text":"second"}
+                {"text":"third"}
+                {"text":"fourth"}
+                """;
+
+        // when
+        ImportJobStatus importJobStatus =
+                clienteImportService.importClientes(DataFormat.NDJSON, inputStream(body));
+
+        // then
+        assertThat(importJobStatus.state()).isEqualTo(ImportJobStatus.State.COMPLETED);
+        assertThat(importJobStatus.rowsRead()).isEqualTo(4);
+        assertThat(importJobStatus.accepted()).isEqualTo(3);
+        assertThat(importJobStatus.rejected()).isEqualTo(1);
+        assertThat(importJobStatus.errors()).singleElement().asString().startsWith("row 2: ");
+        assertThat(clienteImportService.findImportJob(importJobStatus.jobId()))
+                .contains(importJobStatus);
+    }
+
+    @Test
+    void importClientesFailsOnMalformedCsv() {
+        // given
+        String body = "id,text\n,\"unterminated\n";
+
+        // when
+        ImportJobStatus importJobStatus =
+                clienteImportService.importClientes(DataFormat.CSV, inputStream(body));
+
+        // then
+        assertThat(importJobStatus.state()).isEqualTo(ImportJobStatus.State.FAILED);
+        assertThat(importJobStatus.accepted()).isZero();
+        assertThat(importJobStatus.errors()).singleElement().asString().startsWith("Malformed");
+    }
+
+    @Test
+    void importClientesUnderTheGivenIdReportsProgressWhileRunning() throws Exception {
+        // given
+        UUID jobId = UUID.randomUUID();
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        given(clienteService.saveAll(anyList()))
+                .willAnswer(
+                        invocation -> {
+                            saving.countDown();
+                            proceed.await();
+                            return new BatchResult(List.of(BatchItemResult.created(0, 1L)));
+                        });
+
+        // when
+        CompletableFuture<ImportJobStatus> importing =
+                CompletableFuture.supplyAsync(
+                        () ->
+                                clienteImportService.importClientes(
+                                        jobId, DataFormat.NDJSON, inputStream("{\"text\":\"a\"}")));
+
+        // then
+        assertThat(saving.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(clienteImportService.findImportJob(jobId))
+                .get()
+                .extracting(ImportJobStatus::state)
+                .isEqualTo(ImportJobStatus.State.RUNNING);
+        assertThatThrownBy(
+                        () ->
+                                clienteImportService.importClientes(
+                                        jobId, DataFormat.NDJSON, inputStream("")))
+                .isInstanceOf(BadRequestException.class);
+        proceed.countDown();
+        assertThat(importing.get(5, TimeUnit.SECONDS).jobId()).isEqualTo(jobId);
+        assertThat(clienteImportService.findImportJob(jobId))
+                .get()
+                .extracting(ImportJobStatus::state)
+                .isEqualTo(ImportJobStatus.State.COMPLETED);
+    }
+
+    private ByteArrayInputStream inputStream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,85 @@
+package liqui.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import liqui.config.ApplicationProperties;
+import liqui.config.DatabasePlatform;
+import liqui.entities.Cliente;
+import liqui.model.event.ClientesChangedEvent;
+import liqui.model.query.SearchCursor;
+import liqui.model.query.SearchQuery;
+import liqui.repositories.ClienteRepository;
+import liqui.repositories.ClienteSearchHit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class ClienteSearchIndexTest {
+
+    private ClienteSearchIndex clienteSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        clienteSearchIndex =
+                new ClienteSearchIndex(
+                        mock(ClienteRepository.class),
+                        mock(DatabasePlatform.class),
+                        mock(PlatformTransactionManager.class),
+                        new ApplicationProperties());
+        clienteSearchIndex.onClientesChanged(
+                new ClientesChangedEvent(
+                        List.of(
+                                new Cliente(1L, "Maria da Silva", 0L),
+                                new Cliente(2L, "Mariana Souza Silva Santos", 0L),
+                                new Cliente(3L, "João Silva", 0L),
+                                new Cliente(4L, "Pedro Santos", 0L)),
+                        List.of()));
+    }
+
+    @Test
+    void shouldMatchEveryWordByPrefix() {
+        assertThat(ids(search("mar SIL"))).containsExactly(1L, 2L);
+        assertThat(ids(search("joão"))).containsExactly(3L);
+        assertThat(search("silva ped")).isEmpty();
+    }
+
+    @Test
+    void shouldRankByShareOfMatchedWordsThenId() {
+        List<ClienteSearchHit> hits = search("silva");
+
+        assertThat(ids(hits)).containsExactly(3L, 1L, 2L);
+        assertThat(hits.get(0).rank()).isEqualTo(0.5f);
+    }
+
+    @Test
+    void shouldResumeAfterCursor() {
+        List<ClienteSearchHit> first =
+                clienteSearchIndex.search(SearchQuery.parse("silva"), null, 2);
+        ClienteSearchHit last = first.get(1);
+        SearchCursor cursor = new SearchCursor(last.rank(), last.cliente().getId());
+
+        assertThat(ids(clienteSearchIndex.search(SearchQuery.parse("silva"), cursor, 2)))
+                .containsExactly(2L);
+    }
+
+    @Test
+    void shouldFollowUpdatesAndDeletes() {
+        clienteSearchIndex.onClientesChanged(
+                ClientesChangedEvent.saved(new Cliente(4L, "Pedro Silva", 1L)));
+        clienteSearchIndex.onClientesChanged(ClientesChangedEvent.deleted(3L));
+
+        assertThat(ids(search("silva"))).containsExactly(4L, 1L, 2L);
+        assertThat(search("santos")).extracting(hit -> hit.cliente().getId()).containsExactly(2L);
+        assertThat(search("joao")).isEmpty();
+    }
+
+    private List<ClienteSearchHit> search(String q) {
+        return clienteSearchIndex.search(SearchQuery.parse(q), null, 10);
+    }
+
+    private static List<Long> ids(List<ClienteSearchHit> hits) {
+        return hits.stream().map(hit -> hit.cliente().getId()).toList();
+    }
+}
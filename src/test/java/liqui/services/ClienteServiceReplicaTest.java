@@ -0,0 +1,130 @@
+package liqui.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.Validation;
+import java.util.Map;
+import javax.sql.DataSource;
+import liqui.config.ApplicationProperties;
+import liqui.config.DatabasePlatform;
+import liqui.config.ReadWriteRoutingDataSource;
+import liqui.entities.Cliente;
+import liqui.repositories.ClienteRepository;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+/**
+ * {@link ClienteService} and the Spring Data repository behind their transactional proxies, on a
+ * primary and a replica that has not caught up with the last update yet.
+ */
+@SpringJUnitConfig
+class ClienteServiceReplicaTest {
+
+    @Autowired private ClienteService clienteService;
+    @Autowired private ClienteRepository clienteRepository;
+
+    @Test
+    void shouldLoadTheCacheFromThePrimaryWhileTheReplicaLags() {
+        assertThat(clienteService.findClienteVersion(1L)).contains(1L);
+        assertThat(clienteService.findClienteById(1L))
+                .get()
+                .extracting(Cliente::getText, Cliente::getVersion)
+                .containsExactly("updated", 1L);
+        assertThat(clienteService.findClienteVersion(1L)).contains(1L);
+        // read-only repository calls of their own still go to the replica
+        assertThat(clienteRepository.findById(1L))
+                .get()
+                .extracting(Cliente::getText)
+                .isEqualTo("created");
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    @EnableJpaRepositories(
+            basePackageClasses = ClienteRepository.class,
+            includeFilters =
+                    @ComponentScan.Filter(
+                            type = FilterType.ASSIGNABLE_TYPE,
+                            classes = ClienteRepository.class))
+    static class Config {
+
+        @Bean
+        DataSource dataSource() {
+            return new LazyConnectionDataSourceProxy(
+                    new ReadWriteRoutingDataSource(
+                            database("primary", "updated", 1),
+                            database("replica", "created", 0),
+                            new SimpleMeterRegistry()));
+        }
+
+        @Bean
+        LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
+            LocalContainerEntityManagerFactoryBean factory =
+                    new LocalContainerEntityManagerFactoryBean();
+            factory.setDataSource(dataSource);
+            factory.setPackagesToScan(Cliente.class.getPackageName());
+            factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+            factory.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "none"));
+            return factory;
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+
+        @Bean
+        DatabasePlatform databasePlatform(DataSource dataSource) {
+            return new DatabasePlatform(dataSource);
+        }
+
+        @Bean
+        ClienteService clienteService(
+                ClienteRepository clienteRepository,
+                DatabasePlatform databasePlatform,
+                PlatformTransactionManager transactionManager) {
+            ApplicationProperties properties = new ApplicationProperties();
+            return new ClienteService(
+                    clienteRepository,
+                    mock(ClienteCountEstimator.class),
+                    new ClienteCache(properties, new SimpleMeterRegistry()),
+                    mock(ClienteChangeNotifier.class),
+                    mock(ApplicationEventPublisher.class),
+                    mock(EntityManager.class),
+                    Validation.buildDefaultValidatorFactory().getValidator(),
+                    databasePlatform,
+                    properties,
+                    transactionManager);
+        }
+
+        private static DataSource database(String name, String text, long version) {
+            JdbcDataSource dataSource = new JdbcDataSource();
+            dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            jdbc.execute(
+                    "create table clientes (id bigint primary key, text varchar(1024) not null,"
+                            + " version bigint)");
+            jdbc.update("insert into clientes values (1, ?, ?)", text, version);
+            return dataSource;
+        }
+    }
+}
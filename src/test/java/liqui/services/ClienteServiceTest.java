@@ -1,31 +1,73 @@
 package liqui.services;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.never;
 import static org.mockito.BDDMockito.times;
 import static org.mockito.BDDMockito.verify;
-import static org.mockito.BDDMockito.willDoNothing;
+import static org.mockito.BDDMockito.willAnswer;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import liqui.config.ApplicationProperties;
+import liqui.config.DatabasePlatform;
 import liqui.entities.Cliente;
+import liqui.exception.BadRequestException;
+import liqui.exception.PreconditionFailedException;
+import liqui.model.event.ClientesChangedEvent;
+import liqui.model.query.ClienteCursor;
+import liqui.model.query.ClienteField;
+import liqui.model.query.CountStrategy;
+import liqui.model.query.FindClientesQuery;
+import liqui.model.request.ClientePatch;
+import liqui.model.response.BatchItemResult;
+import liqui.model.response.BatchResult;
+import liqui.model.response.ClienteView;
+import liqui.model.response.CursorResult;
 import liqui.model.response.PagedResult;
 import liqui.repositories.ClienteRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @ExtendWith(MockitoExtension.class)
 class ClienteServiceTest {
 
     @Mock private ClienteRepository clienteRepository;
+    @Mock private ClienteCountEstimator clienteCountEstimator;
+
+    @Spy
+    private ClienteCache clienteCache =
+            new ClienteCache(new ApplicationProperties(), new SimpleMeterRegistry());
+
+    @Mock private ClienteChangeNotifier clienteChangeNotifier;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private EntityManager entityManager;
+    @Mock private DatabasePlatform databasePlatform;
+    @Spy private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+    @Spy private ApplicationProperties properties = new ApplicationProperties();
+    @Mock private PlatformTransactionManager transactionManager;
 
     @InjectMocks private ClienteService clienteService;
 
@@ -37,7 +79,9 @@ class ClienteServiceTest {
         given(clienteRepository.findAll(pageable)).willReturn(clientePage);
 
         // when
-        PagedResult<Cliente> pagedResult = clienteService.findAllClientes(0, 10, "id", "asc");
+        FindClientesQuery findClientesQuery =
+                new FindClientesQuery(0, 10, "id", "asc", CountStrategy.EXACT);
+        PagedResult<Cliente> pagedResult = clienteService.findAllClientes(findClientesQuery);
 
         // then
         assertThat(pagedResult).isNotNull();
@@ -49,6 +93,149 @@ class ClienteServiceTest {
         assertThat(pagedResult.isLast()).isTrue();
         assertThat(pagedResult.hasPrevious()).isFalse();
         assertThat(pagedResult.totalElements()).isEqualTo(1);
+        assertThat(pagedResult.countStrategy()).isEqualTo(CountStrategy.EXACT);
+    }
+
+    @Test
+    void findAllClientesWithoutCount() {
+        // given
+        Pageable pageable = PageRequest.of(0, 1, Sort.by(Sort.Direction.ASC, "id"));
+        Slice<Cliente> clienteSlice = new SliceImpl<>(List.of(getCliente()), pageable, true);
+        given(clienteRepository.findAllBy(pageable)).willReturn(clienteSlice);
+
+        // when
+        FindClientesQuery findClientesQuery =
+                new FindClientesQuery(0, 1, "id", "asc", CountStrategy.NONE);
+        PagedResult<Cliente> pagedResult = clienteService.findAllClientes(findClientesQuery);
+
+        // then
+        assertThat(pagedResult.data()).hasSize(1);
+        assertThat(pagedResult.hasNext()).isTrue();
+        assertThat(pagedResult.totalElements()).isNull();
+        assertThat(pagedResult.totalPages()).isNull();
+        assertThat(pagedResult.countStrategy()).isEqualTo(CountStrategy.NONE);
+        verify(clienteRepository, never()).count();
+    }
+
+    @Test
+    void findAllClientesWithEstimatedCount() {
+        // given
+        Pageable pageable = PageRequest.of(0, 1, Sort.by(Sort.Direction.ASC, "id"));
+        Slice<Cliente> clienteSlice = new SliceImpl<>(List.of(getCliente()), pageable, true);
+        given(clienteRepository.findAllBy(pageable)).willReturn(clienteSlice);
+        given(clienteCountEstimator.estimate()).willReturn(1000L);
+
+        // when
+        FindClientesQuery findClientesQuery =
+                new FindClientesQuery(0, 1, "id", "asc", CountStrategy.ESTIMATE);
+        PagedResult<Cliente> pagedResult = clienteService.findAllClientes(findClientesQuery);
+
+        // then
+        assertThat(pagedResult.totalElements()).isEqualTo(1000L);
+        assertThat(pagedResult.totalPages()).isEqualTo(1000);
+        assertThat(pagedResult.countStrategy()).isEqualTo(CountStrategy.ESTIMATE);
+    }
+
+    @Test
+    void findAllClientesSortsByTextThenIdAndCapsPageSize() {
+        // given
+        Pageable pageable =
+                PageRequest.of(
+                        0,
+                        100,
+                        Sort.by(Sort.Direction.DESC, "text")
+                                .and(Sort.by(Sort.Direction.DESC, "id")));
+        given(clienteRepository.findAll(pageable))
+                .willReturn(new PageImpl<>(List.of(getCliente())));
+
+        // when
+        PagedResult<Cliente> pagedResult =
+                clienteService.findAllClientes(
+                        new FindClientesQuery(0, 5000, "text", "desc", CountStrategy.EXACT));
+
+        // then
+        assertThat(pagedResult.data()).hasSize(1);
+    }
+
+    @Test
+    void findClienteViewsCountsOnlyWhenPageIsFull() {
+        // given
+        Set<ClienteField> fields = EnumSet.of(ClienteField.ID, ClienteField.VERSION);
+        Pageable pageable = PageRequest.of(0, 2, Sort.by(Sort.Direction.ASC, "id"));
+        given(clienteRepository.findViews(fields, pageable))
+                .willReturn(
+                        new SliceImpl<>(
+                                List.of(
+                                        new ClienteView(1L, null, 0L),
+                                        new ClienteView(2L, null, 0L)),
+                                pageable,
+                                true));
+        given(clienteRepository.count()).willReturn(7L);
+
+        // when
+        PagedResult<ClienteView> pagedResult =
+                clienteService.findClienteViews(
+                        new FindClientesQuery(0, 2, "id", "asc", CountStrategy.EXACT), fields);
+
+        // then
+        assertThat(pagedResult.data()).extracting(ClienteView::id).containsExactly(1L, 2L);
+        assertThat(pagedResult.totalElements()).isEqualTo(7L);
+        assertThat(pagedResult.totalPages()).isEqualTo(4);
+        verify(clienteRepository, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    void findAllClientesRejectsUnsortableField() {
+        FindClientesQuery findClientesQuery =
+                new FindClientesQuery(0, 10, "version", "asc", CountStrategy.EXACT);
+
+        assertThatThrownBy(() -> clienteService.findAllClientes(findClientesQuery))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Cannot sort by version, sortable fields are: id, text");
+    }
+
+    @Test
+    void findClientesAfter() {
+        // given
+        given(clienteRepository.findPageAfter("id", Sort.Direction.ASC, null, 2))
+                .willReturn(List.of(getCliente(), new Cliente(2L, "second")));
+
+        // when
+        CursorResult<Cliente> cursorResult = clienteService.findClientesAfter("", 1, "id", "asc");
+
+        // then
+        assertThat(cursorResult.data()).hasSize(1);
+        assertThat(cursorResult.hasNext()).isTrue();
+        ClienteCursor cursor = ClienteCursor.decode(cursorResult.nextCursor());
+        assertThat(cursor.sortBy()).isEqualTo("id");
+        assertThat(cursor.direction()).isEqualTo(Sort.Direction.ASC);
+        assertThat(cursor.id()).isEqualTo(1L);
+    }
+
+    @Test
+    void findClienteViewsAfterReadsTheTextItIsSortedBy() {
+        // given
+        Set<ClienteField> fields = EnumSet.of(ClienteField.ID, ClienteField.VERSION);
+        given(
+                        clienteRepository.findViewsAfter(
+                                EnumSet.allOf(ClienteField.class),
+                                "text",
+                                Sort.Direction.ASC,
+                                null,
+                                2))
+                .willReturn(List.of(new ClienteView(7L, "a", 0L), new ClienteView(3L, "b", 0L)));
+
+        // when
+        CursorResult<ClienteView> cursorResult =
+                clienteService.findClienteViewsAfter("", 1, "text", "asc", fields);
+
+        // then
+        assertThat(cursorResult.data()).containsExactly(new ClienteView(7L, null, 0L));
+        assertThat(cursorResult.hasNext()).isTrue();
+        ClienteCursor cursor = ClienteCursor.decode(cursorResult.nextCursor());
+        assertThat(cursor.sortBy()).isEqualTo("text");
+        assertThat(cursor.key()).isEqualTo("a");
+        assertThat(cursor.id()).isEqualTo(7L);
     }
 
     @Test
@@ -64,6 +251,18 @@ class ClienteServiceTest {
         assertThat(cliente.getText()).isEqualTo("junitTest");
     }
 
+    @Test
+    void findClienteByIdIsCached() {
+        // given
+        given(clienteRepository.findById(1L)).willReturn(Optional.of(getCliente()));
+        // when
+        clienteService.findClienteById(1L);
+        Optional<Cliente> optionalCliente = clienteService.findClienteById(1L);
+        // then
+        assertThat(optionalCliente).isPresent();
+        verify(clienteRepository, times(1)).findById(1L);
+    }
+
     @Test
     void saveCliente() {
         // given
@@ -76,14 +275,144 @@ class ClienteServiceTest {
         assertThat(persistedCliente.getText()).isEqualTo("junitTest");
     }
 
+    @Test
+    void updateCliente() {
+        // given
+        Cliente updatedRow = new Cliente(1L, "updated", 5L);
+        given(clienteRepository.updateText(1L, "updated", null))
+                .willReturn(Optional.of(updatedRow));
+        // when
+        Optional<Cliente> updated =
+                clienteService.updateCliente(1L, new Cliente(null, "updated"), null);
+        // then
+        assertThat(updated).containsSame(updatedRow);
+        verify(clienteRepository, never()).findById(any());
+        verify(clienteCache, times(1)).invalidate(1L);
+        verify(clienteChangeNotifier, times(1)).changed(updatedRow);
+    }
+
+    @Test
+    void updateClienteRejectsStaleVersion() {
+        // given
+        given(clienteRepository.updateText(1L, "updated", 3L)).willReturn(Optional.empty());
+        given(clienteRepository.findVersionById(1L)).willReturn(Optional.of(4L));
+        // when
+        assertThatThrownBy(() -> clienteService.updateCliente(1L, new Cliente(null, "updated"), 3L))
+                .isInstanceOf(PreconditionFailedException.class);
+        // then
+        verify(clienteChangeNotifier, never()).changed(any());
+    }
+
+    @Test
+    void updateClienteReturnsEmptyWhenMissing() {
+        // given
+        given(clienteRepository.updateText(1L, "updated", 3L)).willReturn(Optional.empty());
+        given(clienteRepository.findVersionById(1L)).willReturn(Optional.empty());
+        // when
+        Optional<Cliente> updated =
+                clienteService.updateCliente(1L, new Cliente(null, "updated"), 3L);
+        // then
+        assertThat(updated).isEmpty();
+        verify(clienteCache, never()).invalidate(any());
+    }
+
+    @Test
+    void patchClienteWithoutFieldsLeavesItUntouched() {
+        // given
+        Cliente existing = getCliente();
+        existing.setVersion(2L);
+        given(clienteRepository.findById(1L)).willReturn(Optional.of(existing));
+        // when
+        Optional<Cliente> patched = clienteService.patchCliente(1L, new ClientePatch(null), 2L);
+        // then
+        assertThat(patched).containsSame(existing);
+        verify(clienteRepository, never()).updateText(any(), any(), any());
+        assertThatThrownBy(() -> clienteService.patchCliente(1L, new ClientePatch(null), 1L))
+                .isInstanceOf(PreconditionFailedException.class);
+    }
+
+    @Test
+    void findClienteVersionPrefersCache() {
+        // given
+        Cliente cliente = getCliente();
+        cliente.setVersion(2L);
+        clienteCache.get(1L, id -> Optional.of(cliente));
+        given(clienteRepository.findVersionById(2L)).willReturn(Optional.of(7L));
+        // when, then
+        assertThat(clienteService.findClienteVersion(1L)).contains(2L);
+        assertThat(clienteService.findClienteVersion(2L)).contains(7L);
+        verify(clienteRepository, never()).findVersionById(1L);
+    }
+
+    @Test
+    void saveAll() {
+        // given
+        Cliente existing = getCliente();
+        given(clienteRepository.findAllById(List.of(1L, 2L))).willReturn(List.of(existing));
+        willAnswer(
+                        invocation -> {
+                            invocation.<Cliente>getArgument(0).setId(10L);
+                            return null;
+                        })
+                .given(entityManager)
+                .persist(any(Cliente.class));
+        List<Cliente> clientes =
+                List.of(
+                        new Cliente(null, "new"),
+                        new Cliente(1L, "updated"),
+                        new Cliente(2L, "missing"),
+                        new Cliente(null, ""));
+
+        // when
+        BatchResult batchResult = clienteService.saveAll(clientes);
+
+        // then
+        assertThat(batchResult.accepted()).isEqualTo(2);
+        assertThat(batchResult.rejected()).isEqualTo(2);
+        assertThat(batchResult.items())
+                .extracting(BatchItemResult::id, BatchItemResult::status)
+                .containsExactly(
+                        tuple(10L, BatchItemResult.Status.CREATED),
+                        tuple(1L, BatchItemResult.Status.UPDATED),
+                        tuple(2L, BatchItemResult.Status.REJECTED),
+                        tuple(null, BatchItemResult.Status.REJECTED));
+        assertThat(existing.getText()).isEqualTo("updated");
+        verify(entityManager, times(1)).flush();
+        verify(clienteRepository, never()).copyInsert(any());
+    }
+
+    @Test
+    void saveAllRejectsOversizedBatch() {
+        properties.getBatch().setMaxItems(1);
+
+        assertThatThrownBy(() -> clienteService.saveAll(List.of(getCliente(), getCliente())))
+                .isInstanceOf(BadRequestException.class);
+    }
+
     @Test
     void deleteClienteById() {
         // given
-        willDoNothing().given(clienteRepository).deleteById(1L);
+        Cliente deletedRow = new Cliente(1L, "deleted", 2L);
+        given(clienteRepository.deleteReturning(1L)).willReturn(Optional.of(deletedRow));
+        // when
+        Optional<Cliente> deleted = clienteService.deleteClienteById(1L);
+        // then
+        assertThat(deleted).containsSame(deletedRow);
+        verify(clienteRepository, never()).deleteById(any());
+        verify(clienteCache, times(1)).invalidate(1L);
+        verify(clienteChangeNotifier, times(1)).deleted(1L);
+        verify(eventPublisher, times(1)).publishEvent(ClientesChangedEvent.deleted(1L));
+    }
+
+    @Test
+    void deleteMissingClienteById() {
+        // given
+        given(clienteRepository.deleteReturning(1L)).willReturn(Optional.empty());
         // when
-        clienteService.deleteClienteById(1L);
+        Optional<Cliente> deleted = clienteService.deleteClienteById(1L);
         // then
-        verify(clienteRepository, times(1)).deleteById(1L);
+        assertThat(deleted).isEmpty();
+        verify(clienteChangeNotifier, never()).deleted(any());
     }
 
     private Cliente getCliente() {
@@ -0,0 +1,197 @@
+package liqui.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.LongStream;
+import liqui.config.ApplicationProperties;
+import liqui.config.ApplicationProperties.WriteBehind.Fsync;
+import liqui.entities.Cliente;
+import liqui.exception.ServiceUnavailableException;
+import liqui.repositories.ClienteRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class ClienteWriteBehindQueueTest {
+
+    @TempDir Path directory;
+
+    private final ClienteService clienteService = mock(ClienteService.class);
+    private final ClienteRepository clienteRepository = mock(ClienteRepository.class);
+    private final List<Long> inserted = new CopyOnWriteArrayList<>();
+
+    private ApplicationProperties properties;
+    private ClienteWriteBehindQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ApplicationProperties();
+        properties.getWriteBehind().setEnabled(true);
+        properties.getWriteBehind().setWalDirectory(directory);
+        properties.getWriteBehind().setFsync(Fsync.INTERVAL);
+        properties.getWriteBehind().setRetryDelay(Duration.ofMillis(10));
+        given(clienteRepository.allocateIds(anyInt()))
+                .willReturn(LongStream.rangeClosed(51, 100).boxed().toList());
+        willAnswer(
+                        invocation -> {
+                            invocation.<List<Cliente>>getArgument(0).stream()
+                                    .map(Cliente::getId)
+                                    .forEach(inserted::add);
+                            return null;
+                        })
+                .given(clienteService)
+                .insertQueued(any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void shouldAcknowledgeWithBlockIdsAndInsertInTheBackground() {
+        queue = start();
+
+        Cliente first = queue.enqueue("first");
+        Cliente second = queue.enqueue("second");
+
+        assertThat(first.getId()).isEqualTo(51L);
+        assertThat(second.getId()).isEqualTo(52L);
+        await().atMost(Duration.ofSeconds(5)).until(() -> inserted.size() == 2);
+        assertThat(inserted).containsExactly(51L, 52L);
+        assertThat(queue.getStatus().inserted()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReplayWhatWasLoggedButNeverInserted() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, Fsync.ALWAYS, 1024)) {
+            wal.append(new Cliente(7L, "committed before the crash"));
+            wal.append(new Cliente(8L, "lost in the crash"));
+        }
+        given(clienteRepository.findExistingIds(List.of(7L, 8L))).willReturn(List.of(7L));
+
+        queue = start();
+
+        assertThat(inserted).containsExactly(8L);
+        assertThat(queue.getStatus().walBytes()).isZero();
+    }
+
+    @Test
+    void shouldNotReplayWhatWasInsertedOnceDeleted() {
+        queue = start();
+        queue.enqueue("inserted, then deleted");
+        await().atMost(Duration.ofSeconds(5)).until(() -> inserted.size() == 1);
+        queue.stop();
+
+        // gone from the table, as a DELETE or an archived partition leaves it
+        given(clienteRepository.findExistingIds(any())).willReturn(List.of());
+        queue = start();
+
+        assertThat(inserted).containsExactly(51L);
+    }
+
+    @Test
+    void shouldRetryAFailedBatchAndRefuseWhenFull() throws InterruptedException {
+        properties.getWriteBehind().setCapacity(1);
+        CountDownLatch databaseBack = new CountDownLatch(1);
+        willAnswer(
+                        invocation -> {
+                            if (databaseBack.getCount() > 0) {
+                                throw new IllegalStateException("database down");
+                            }
+                            invocation.<List<Cliente>>getArgument(0).stream()
+                                    .map(Cliente::getId)
+                                    .forEach(inserted::add);
+                            return null;
+                        })
+                .given(clienteService)
+                .insertQueued(any());
+        queue = start();
+
+        queue.enqueue("taken by the writer");
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> "database down".equals(queue.getStatus().lastError()));
+        queue.enqueue("waiting in the queue");
+        assertThatThrownBy(() -> queue.enqueue("one too many"))
+                .isInstanceOf(ServiceUnavailableException.class);
+
+        databaseBack.countDown();
+        await().atMost(Duration.ofSeconds(5)).until(() -> inserted.size() == 2);
+        assertThat(queue.getStatus().lastError()).isNull();
+    }
+
+    @Test
+    void shouldDeadLetterWhatTheDatabaseRefusesAndInsertTheRest() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, Fsync.ALWAYS, 1024)) {
+            wal.append(new Cliente(7L, "fine"));
+            wal.append(new Cliente(8L, "too long, \"say\""));
+            wal.append(new Cliente(9L, "fine too"));
+        }
+        given(clienteRepository.findExistingIds(any())).willReturn(List.of());
+        willAnswer(
+                        invocation -> {
+                            List<Cliente> clientes = invocation.getArgument(0);
+                            if (clientes.stream().anyMatch(cliente -> cliente.getId() == 8L)) {
+                                throw new DataIntegrityViolationException("value too long");
+                            }
+                            clientes.stream().map(Cliente::getId).forEach(inserted::add);
+                            return null;
+                        })
+                .given(clienteService)
+                .insertQueued(any());
+
+        queue = start();
+
+        assertThat(inserted).containsExactly(7L, 9L);
+        assertThat(Files.readAllLines(directory.resolve("dead-letter.csv")))
+                .containsExactly("id,text,error", "8,\"too long, \"\"say\"\"\",value too long");
+
+        Cliente queued = queue.enqueue("after the refused one");
+        await().atMost(Duration.ofSeconds(5)).until(() -> inserted.contains(queued.getId()));
+    }
+
+    @Test
+    void shouldStayInertWhenDisabled() {
+        properties.getWriteBehind().setEnabled(false);
+        queue = start();
+
+        assertThat(queue.isRunning()).isFalse();
+        assertThatThrownBy(() -> queue.enqueue("refused"))
+                .isInstanceOf(ServiceUnavailableException.class);
+        verify(clienteRepository, never()).allocateIds(anyInt());
+    }
+
+    private ClienteWriteBehindQueue start() {
+        ClienteWriteBehindQueue started =
+                new ClienteWriteBehindQueue(
+                        properties,
+                        clienteService,
+                        clienteRepository,
+                        mock(PlatformTransactionManager.class),
+                        new SimpleMeterRegistry());
+        started.start();
+        return started;
+    }
+}
@@ -0,0 +1,94 @@
+package liqui.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+import liqui.config.ApplicationProperties.WriteBehind.Fsync;
+import liqui.entities.Cliente;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WriteAheadLogTest {
+
+    @TempDir Path directory;
+
+    @Test
+    void shouldReadBackWhatAPreviousRunAppended() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, Fsync.ALWAYS, 1024)) {
+            wal.append(new Cliente(1L, "first"));
+            wal.append(new Cliente(2L, "ção, \"quoted\"\nnew line"));
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, Fsync.ALWAYS, 1024)) {
+            assertThat(wal.readPrevious())
+                    .extracting(Cliente::getId, Cliente::getText)
+                    .containsExactly(tuple(1L, "first"), tuple(2L, "ção, \"quoted\"\nnew line"));
+        }
+    }
+
+    @Test
+    void shouldStopAtATornRecord() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, Fsync.NEVER, 1024)) {
+            wal.append(new Cliente(1L, "kept"));
+            wal.append(new Cliente(2L, "torn"));
+        }
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(segment) - 2);
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, Fsync.NEVER, 1024)) {
+            assertThat(wal.readPrevious()).extracting(Cliente::getId).containsExactly(1L);
+        }
+    }
+
+    @Test
+    void shouldNotReadBackWhatWasCommitted() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, Fsync.ALWAYS, 1024)) {
+            wal.commit(wal.append(new Cliente(1L, "inserted, then deleted")));
+            wal.append(new Cliente(2L, "never inserted"));
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, Fsync.ALWAYS, 1024)) {
+            assertThat(wal.readPrevious()).extracting(Cliente::getId).containsExactly(2L);
+            wal.deleteBefore(wal.currentSegment());
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, Fsync.ALWAYS, 1024)) {
+            wal.append(new Cliente(3L, "after the committed segment was deleted"));
+        }
+        try (WriteAheadLog wal = new WriteAheadLog(directory, Fsync.ALWAYS, 1024)) {
+            assertThat(wal.readPrevious()).extracting(Cliente::getId).containsExactly(3L);
+        }
+    }
+
+    @Test
+    void shouldRollSegmentsAndDeleteReleasedOnes() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, Fsync.NEVER, 64)) {
+            long first = wal.append(new Cliente(1L, "x".repeat(40))).segment();
+            long second = wal.append(new Cliente(2L, "y".repeat(40))).segment();
+            assertThat(second).isEqualTo(first + 1);
+            assertThat(segments()).hasSize(2);
+
+            wal.deleteBefore(second);
+
+            assertThat(segments()).hasSize(1);
+            assertThat(wal.size()).isEqualTo(Files.size(segments().get(0)));
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log"))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package liqui.services.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.List;
+import liqui.config.ApplicationProperties;
+import liqui.model.event.OutboxEvent;
+import liqui.repositories.OutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+class OutboxRelayTest {
+
+    private final OutboxRepository outboxRepository = mock(OutboxRepository.class);
+    private final PlatformTransactionManager transactionManager =
+            mock(PlatformTransactionManager.class);
+    private final InMemoryOutboxSink sink = new InMemoryOutboxSink();
+
+    private ApplicationProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ApplicationProperties();
+        properties.getOutbox().setEnabled(true);
+        given(transactionManager.getTransaction(any())).willReturn(mock(TransactionStatus.class));
+    }
+
+    @Test
+    void shouldDeliverClaimedBatchAndDeleteIt() {
+        given(outboxRepository.claim(500)).willReturn(List.of(event(7L), event(9L)));
+
+        int delivered = relay(List.of(sink)).relayBatch();
+
+        assertThat(delivered).isEqualTo(2);
+        assertThat(sink.getEvents()).extracting(OutboxEvent::id).containsExactly(7L, 9L);
+        verify(outboxRepository).delete(List.of(7L, 9L));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void shouldKeepBatchWhenASinkFails() {
+        given(outboxRepository.claim(500)).willReturn(List.of(event(7L)));
+        OutboxSink failing =
+                events -> {
+                    throw new IOException("webhook down");
+                };
+
+        assertThatThrownBy(() -> relay(List.of(sink, failing)).relayBatch())
+                .isInstanceOf(UncheckedIOException.class);
+        verify(outboxRepository, never()).delete(anyList());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void shouldRefuseToStartWithoutSinks() {
+        OutboxRelay relay = relay(List.of());
+
+        assertThatThrownBy(relay::start).isInstanceOf(IllegalStateException.class);
+        assertThat(relay.isRunning()).isFalse();
+    }
+
+    private OutboxRelay relay(List<OutboxSink> sinks) {
+        return new OutboxRelay(
+                properties, outboxRepository, sinks, transactionManager, new SimpleMeterRegistry());
+    }
+
+    private static OutboxEvent event(Long id) {
+        return new OutboxEvent(
+                id, "deleted", id, "{\"type\":\"deleted\",\"id\":" + id + "}", Instant.now());
+    }
+}
@@ -0,0 +1,91 @@
+package liqui.services.partitioning;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import liqui.common.AbstractIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * The changelog partitions {@code clientes} on PostgreSQL, and maintenance creates partitions ahead
+ * and archives a full one. A context of its own, as the id block Hibernate holds may lie in the
+ * archived partition.
+ */
+@TestPropertySource(
+        properties = {
+            "application.partitioning.check-interval=1h",
+            "application.partitioning.archive.enabled=true",
+            "application.partitioning.archive.retain=0",
+            "application.partitioning.archive.directory=target/partition-archive-it"
+        })
+@DirtiesContext
+class ClientePartitionMaintenanceIT extends AbstractIntegrationTest {
+
+    @Autowired private ClientePartitionMaintenance maintenance;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldCreatePartitionsAheadAndArchiveAFullOne() throws Exception {
+        assertThat(
+                        jdbcTemplate.queryForObject(
+                                "select relkind from pg_class where oid = to_regclass('clientes')",
+                                String.class))
+                .isEqualTo("p");
+        assertThat(
+                        jdbcTemplate.queryForObject(
+                                "select count(*) from pg_constraint where conname ="
+                                        + " 'clientes_p0_bound'",
+                                Integer.class))
+                .isZero();
+        long bound =
+                ClientePartition.parse(
+                                "clientes_p0",
+                                jdbcTemplate.queryForObject(
+                                        "select pg_get_expr(relpartbound, oid) from pg_class"
+                                                + " where relname = 'clientes_p0'",
+                                        String.class))
+                        .upper();
+        long cold = bound - 1;
+        long hot = bound + 1;
+        jdbcTemplate.update(
+                "insert into clientes (id, text, version) values (?, 'cold', 0), (?, 'hot', 0)",
+                cold,
+                hot);
+        // every id of clientes_p0 handed out, which makes it full
+        jdbcTemplate.queryForObject("select setval('clientes_seq', ?)", Long.class, bound + 1000);
+
+        maintenance.maintain();
+
+        assertThat(
+                        jdbcTemplate.queryForObject(
+                                "select to_regclass('clientes_p0') is null", Boolean.class))
+                .isTrue();
+        assertThat(Path.of("target", "partition-archive-it", "clientes_p0.csv.gz")).exists();
+        assertThat(
+                        jdbcTemplate.queryForObject(
+                                "select count(*) from pg_inherits"
+                                        + " where inhparent = to_regclass('clientes')",
+                                Integer.class))
+                .isGreaterThanOrEqualTo(4);
+        this.mockMvc.perform(get("/{id}", cold)).andExpect(status().isNotFound());
+        this.mockMvc
+                .perform(get("/{id}", hot))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.text", is("hot")));
+        this.mockMvc
+                .perform(get("").param("after", "").param("pageSize", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].id", is((int) hot)));
+
+        Files.deleteIfExists(Path.of("target", "partition-archive-it", "clientes_p0.csv.gz"));
+    }
+}
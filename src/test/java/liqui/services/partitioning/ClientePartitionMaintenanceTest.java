@@ -0,0 +1,89 @@
+package liqui.services.partitioning;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import liqui.config.ApplicationProperties;
+import liqui.services.partitioning.ClientePartitionMaintenance.Plan;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ClientePartitionMaintenanceTest {
+
+    private ApplicationProperties.Partitioning config;
+
+    @BeforeEach
+    void setUp() {
+        config = new ApplicationProperties().getPartitioning();
+        config.setPartitionSize(1000);
+        config.setAhead(2);
+        config.getArchive().setRetain(1);
+    }
+
+    @Test
+    void shouldCreatePartitionsAheadOfTheSequence() {
+        List<ClientePartition> partitions =
+                List.of(
+                        ClientePartition.parse(
+                                "clientes_p0", "FOR VALUES FROM (MINVALUE) TO ('1000')"),
+                        ClientePartition.parse(
+                                "clientes_p1000", "FOR VALUES FROM ('1000') TO ('2000')"));
+
+        Plan plan = ClientePartitionMaintenance.plan(partitions, 1050, config);
+
+        assertThat(plan.create())
+                .containsExactly(
+                        new ClientePartition("clientes_p2000", 2000, 3000),
+                        new ClientePartition("clientes_p3000", 3000, 4000));
+        assertThat(plan.archive()).isEmpty();
+        assertThat(
+                        ClientePartitionMaintenance.plan(
+                                        List.of(
+                                                partitions.get(0),
+                                                partitions.get(1),
+                                                ClientePartition.of(2000, 3000),
+                                                ClientePartition.of(3000, 4000)),
+                                        1050,
+                                        config)
+                                .create())
+                .isEmpty();
+    }
+
+    @Test
+    void shouldArchiveFullPartitionsBeyondTheRetainedOnes() {
+        config.getArchive().setEnabled(true);
+        List<ClientePartition> partitions =
+                List.of(
+                        ClientePartition.of(3000, 4000),
+                        new ClientePartition("clientes_p0", Long.MIN_VALUE, 1000),
+                        ClientePartition.of(1000, 2000),
+                        ClientePartition.of(2000, 3000));
+
+        Plan plan = ClientePartitionMaintenance.plan(partitions, 3000, config);
+
+        assertThat(plan.archive())
+                .containsExactly(partitions.get(1), ClientePartition.of(1000, 2000));
+    }
+
+    @Test
+    void shouldKeepEverythingWithoutArchival() {
+        List<ClientePartition> partitions =
+                List.of(
+                        new ClientePartition("clientes_p0", Long.MIN_VALUE, 1000),
+                        ClientePartition.of(1000, 2000),
+                        ClientePartition.of(2000, 3000),
+                        ClientePartition.of(3000, 4000),
+                        ClientePartition.of(4000, 5000));
+
+        assertThat(ClientePartitionMaintenance.plan(partitions, 3000, config).archive()).isEmpty();
+    }
+
+    @Test
+    void shouldRejectNamesThatAreNotPartitions() {
+        assertThatThrownBy(() -> new ClientePartition("clientes; drop table x", 0, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ClientePartition.parse("clientes_p0", "DEFAULT"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
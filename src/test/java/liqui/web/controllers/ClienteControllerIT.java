@@ -3,12 +3,16 @@ package liqui.web.controllers;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.ArrayList;
@@ -19,7 +23,9 @@ import liqui.repositories.ClienteRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
 
 class ClienteControllerIT extends AbstractIntegrationTest {
 
@@ -53,6 +59,109 @@ class ClienteControllerIT extends AbstractIntegrationTest {
                 .andExpect(jsonPath("$.hasPrevious", is(false)));
     }
 
+    @Test
+    void shouldFetchClientesWithEstimatedCount() throws Exception {
+        this.mockMvc
+                .perform(get("").param("count", "estimate").param("pageSize", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.size()", is(2)))
+                .andExpect(jsonPath("$.totalElements", notNullValue()))
+                .andExpect(jsonPath("$.hasNext", is(true)))
+                .andExpect(jsonPath("$.countStrategy", is("estimate")));
+    }
+
+    @Test
+    void shouldFetchSparseFieldsSortedByText() throws Exception {
+        this.mockMvc
+                .perform(get("").param("fields", "text").param("sortBy", "text"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.size()", is(clienteList.size())))
+                .andExpect(jsonPath("$.data[0].text", is("First Cliente")))
+                .andExpect(jsonPath("$.data[0].version", is(0)))
+                .andExpect(jsonPath("$.totalElements", is(clienteList.size())));
+    }
+
+    @Test
+    void shouldWalkAllClientesWithCursor() throws Exception {
+        String firstPage =
+                this.mockMvc
+                        .perform(get("").param("after", "").param("pageSize", "2"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.data.size()", is(2)))
+                        .andExpect(jsonPath("$.hasNext", is(true)))
+                        .andExpect(jsonPath("$.nextCursor", notNullValue()))
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsString();
+        String nextCursor = objectMapper.readTree(firstPage).get("nextCursor").asText();
+
+        this.mockMvc
+                .perform(get("").param("after", nextCursor).param("pageSize", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.size()", is(1)))
+                .andExpect(jsonPath("$.data[0].text", is("Third Cliente")))
+                .andExpect(jsonPath("$.hasNext", is(false)));
+    }
+
+    @Test
+    void shouldSearchClientesByWordPrefix() throws Exception {
+        this.mockMvc
+                .perform(get("/search").param("q", "SEC cli"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.size()", is(1)))
+                .andExpect(jsonPath("$.data[0].text", is("Second Cliente")))
+                .andExpect(jsonPath("$.hasNext", is(false)));
+    }
+
+    @Test
+    void shouldWalkSearchResultsWithCursor() throws Exception {
+        String firstPage =
+                this.mockMvc
+                        .perform(get("/search").param("q", "clie").param("pageSize", "2"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.data.size()", is(2)))
+                        .andExpect(jsonPath("$.hasNext", is(true)))
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsString();
+        String nextCursor = objectMapper.readTree(firstPage).get("nextCursor").asText();
+
+        this.mockMvc
+                .perform(
+                        get("/search")
+                                .param("q", "clie")
+                                .param("after", nextCursor)
+                                .param("pageSize", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.size()", is(1)))
+                .andExpect(jsonPath("$.data[0].text", is("Third Cliente")))
+                .andExpect(jsonPath("$.hasNext", is(false)));
+    }
+
+    @Test
+    void shouldExportAllClientesAsCsv() throws Exception {
+        MvcResult mvcResult =
+                this.mockMvc
+                        .perform(get("/export").param("format", "csv"))
+                        .andExpect(request().asyncStarted())
+                        .andReturn();
+
+        this.mockMvc
+                .perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", is("text/csv;charset=UTF-8")))
+                .andExpect(
+                        content()
+                                .string(
+                                        "id,text\r\n"
+                                                + clienteList.get(0).getId()
+                                                + ",First Cliente\r\n"
+                                                + clienteList.get(1).getId()
+                                                + ",Second Cliente\r\n"
+                                                + clienteList.get(2).getId()
+                                                + ",Third Cliente\r\n"));
+    }
+
     @Test
     void shouldFindClienteById() throws Exception {
         Cliente cliente = clienteList.get(0);
@@ -76,6 +185,34 @@ class ClienteControllerIT extends AbstractIntegrationTest {
                 .andExpect(jsonPath("$.text", is(cliente.getText())));
     }
 
+    @Test
+    void shouldIndexTheLongestMultibyteTextAndRejectLongerOnes() throws Exception {
+        // 2 bytes each in UTF-8, beyond what compresses into a btree entry when varied
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1024; i++) {
+            text.append((char) ('\u0400' + (i * 7919) % 256));
+        }
+        this.mockMvc
+                .perform(
+                        post("").contentType(MediaType.APPLICATION_JSON)
+                                .content(
+                                        objectMapper.writeValueAsString(
+                                                new Cliente(null, text.toString()))))
+                .andExpect(status().isCreated());
+        this.mockMvc
+                .perform(get("").param("sortBy", "text").param("sortDir", "desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].text", is(text.toString())));
+
+        this.mockMvc
+                .perform(
+                        post("").contentType(MediaType.APPLICATION_JSON)
+                                .content(
+                                        objectMapper.writeValueAsString(
+                                                new Cliente(null, "€".repeat(1024)))))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void shouldReturn400WhenCreateNewClienteWithoutText() throws Exception {
         Cliente cliente = new Cliente(null, null);
@@ -97,6 +234,57 @@ class ClienteControllerIT extends AbstractIntegrationTest {
                 .andReturn();
     }
 
+    @Test
+    void shouldCreateAndUpdateClientesInBatch() throws Exception {
+        Cliente existing = clienteList.get(0);
+        List<Cliente> clientes =
+                List.of(
+                        new Cliente(null, "Batch Cliente"),
+                        new Cliente(existing.getId(), "Updated in batch"),
+                        new Cliente(null, ""));
+
+        this.mockMvc
+                .perform(
+                        post("/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(clientes)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted", is(2)))
+                .andExpect(jsonPath("$.rejected", is(1)))
+                .andExpect(jsonPath("$.items[0].id", notNullValue()))
+                .andExpect(jsonPath("$.items[0].status", is("CREATED")))
+                .andExpect(jsonPath("$.items[1].status", is("UPDATED")))
+                .andExpect(jsonPath("$.items[2].status", is("REJECTED")));
+
+        this.mockMvc
+                .perform(get("/{id}", existing.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.text", is("Updated in batch")));
+    }
+
+    @Test
+    void shouldImportClientesFromNdjson() throws Exception {
+        String body =
+                """
+                {"text":"Imported Cliente"}
+                {"text":""}
+                """;
+
+        this.mockMvc
+                .perform(post("/import").contentType("application/x-ndjson").content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state", is("COMPLETED")))
+                .andExpect(jsonPath("$.rowsRead", is(2)))
+                .andExpect(jsonPath("$.accepted", is(1)))
+                .andExpect(jsonPath("$.rejected", is(1)))
+                .andExpect(jsonPath("$.errors", hasSize(1)));
+
+        this.mockMvc
+                .perform(get(""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements", is(clienteList.size() + 1)));
+    }
+
     @Test
     void shouldUpdateCliente() throws Exception {
         Cliente cliente = clienteList.get(0);
@@ -111,6 +299,85 @@ class ClienteControllerIT extends AbstractIntegrationTest {
                 .andExpect(jsonPath("$.text", is(cliente.getText())));
     }
 
+    @Test
+    void shouldServeConditionalGetsFromVersion() throws Exception {
+        Cliente cliente = clienteList.get(0);
+        String etag = "\"" + cliente.getVersion() + "\"";
+
+        this.mockMvc
+                .perform(get("/{id}", cliente.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        this.mockMvc
+                .perform(get("/{id}", cliente.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        String listEtag =
+                this.mockMvc
+                        .perform(get(""))
+                        .andExpect(status().isOk())
+                        .andReturn()
+                        .getResponse()
+                        .getHeader(HttpHeaders.ETAG);
+        this.mockMvc
+                .perform(get("").header(HttpHeaders.IF_NONE_MATCH, listEtag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void shouldRejectUpdateWithStaleIfMatch() throws Exception {
+        Cliente cliente = clienteList.get(0);
+        String etag = "\"" + cliente.getVersion() + "\"";
+        cliente.setText("Updated once");
+
+        this.mockMvc
+                .perform(
+                        put("/{id}", cliente.getId())
+                                .header(HttpHeaders.IF_MATCH, etag)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(cliente)))
+                .andExpect(status().isOk())
+                .andExpect(
+                        header().string(
+                                        HttpHeaders.ETAG,
+                                        "\"" + (cliente.getVersion() + 1) + "\""));
+
+        this.mockMvc
+                .perform(
+                        put("/{id}", cliente.getId())
+                                .header(HttpHeaders.IF_MATCH, etag)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(cliente)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void shouldPatchClienteText() throws Exception {
+        Cliente cliente = clienteList.get(1);
+
+        this.mockMvc
+                .perform(
+                        patch("/{id}", cliente.getId())
+                                .contentType("application/merge-patch+json")
+                                .content("{\"text\":\"Patched Cliente\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.text", is("Patched Cliente")))
+                .andExpect(jsonPath("$.version", is((int) (cliente.getVersion() + 1))));
+        this.mockMvc
+                .perform(
+                        patch("/{id}", cliente.getId())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.text", is("Patched Cliente")));
+        this.mockMvc
+                .perform(
+                        patch("/{id}", Long.MAX_VALUE)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"text\":\"Nobody\"}"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void shouldDeleteCliente() throws Exception {
         Cliente cliente = clienteList.get(0);
@@ -3,25 +3,54 @@ package liqui.web.controllers;
 import static liqui.utils.AppConstants.PROFILE_TEST;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import liqui.entities.Cliente;
+import liqui.exception.PreconditionFailedException;
+import liqui.exception.ServiceUnavailableException;
+import liqui.model.query.ClienteField;
+import liqui.model.query.CountStrategy;
+import liqui.model.query.DataFormat;
+import liqui.model.query.FindClientesQuery;
+import liqui.model.request.ClientePatch;
+import liqui.model.response.BatchItemResult;
+import liqui.model.response.BatchResult;
+import liqui.model.response.ClienteView;
+import liqui.model.response.CursorResult;
+import liqui.model.response.ImportJobStatus;
 import liqui.model.response.PagedResult;
+import liqui.services.ClienteChangeFeed;
+import liqui.services.ClienteExportService;
+import liqui.services.ClienteImportService;
+import liqui.services.ClienteSearchService;
 import liqui.services.ClienteService;
+import liqui.services.ClienteWriteBehindQueue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,6 +58,10 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
@@ -41,6 +74,16 @@ class ClienteControllerTest {
 
     @MockBean private ClienteService clienteService;
 
+    @MockBean private ClienteExportService clienteExportService;
+
+    @MockBean private ClienteImportService clienteImportService;
+
+    @MockBean private ClienteSearchService clienteSearchService;
+
+    @MockBean private ClienteWriteBehindQueue clienteWriteBehindQueue;
+
+    @MockBean private ClienteChangeFeed clienteChangeFeed;
+
     @Autowired private ObjectMapper objectMapper;
 
     private List<Cliente> clienteList;
@@ -57,7 +100,10 @@ class ClienteControllerTest {
     void shouldFetchAllClientes() throws Exception {
         Page<Cliente> page = new PageImpl<>(clienteList);
         PagedResult<Cliente> clientePagedResult = new PagedResult<>(page);
-        given(clienteService.findAllClientes(0, 10, "id", "asc")).willReturn(clientePagedResult);
+        given(
+                        clienteService.findAllClientes(
+                                new FindClientesQuery(0, 10, "id", "asc", CountStrategy.EXACT)))
+                .willReturn(clientePagedResult);
 
         this.mockMvc
                 .perform(get(""))
@@ -69,7 +115,123 @@ class ClienteControllerTest {
                 .andExpect(jsonPath("$.isFirst", is(true)))
                 .andExpect(jsonPath("$.isLast", is(true)))
                 .andExpect(jsonPath("$.hasNext", is(false)))
-                .andExpect(jsonPath("$.hasPrevious", is(false)));
+                .andExpect(jsonPath("$.hasPrevious", is(false)))
+                .andExpect(jsonPath("$.countStrategy", is("exact")));
+    }
+
+    @Test
+    void shouldFetchClientesWithoutCount() throws Exception {
+        Slice<Cliente> slice = new SliceImpl<>(clienteList, PageRequest.of(0, 10), false);
+        PagedResult<Cliente> clientePagedResult =
+                new PagedResult<>(slice, null, CountStrategy.NONE);
+        given(
+                        clienteService.findAllClientes(
+                                new FindClientesQuery(0, 10, "id", "asc", CountStrategy.NONE)))
+                .willReturn(clientePagedResult);
+
+        this.mockMvc
+                .perform(get("").param("count", "none"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.size()", is(clienteList.size())))
+                .andExpect(jsonPath("$.totalElements").value(nullValue()))
+                .andExpect(jsonPath("$.totalPages").value(nullValue()))
+                .andExpect(jsonPath("$.hasNext", is(false)))
+                .andExpect(jsonPath("$.countStrategy", is("none")));
+    }
+
+    @Test
+    void shouldFetchOnlyRequestedFields() throws Exception {
+        Page<ClienteView> page =
+                new PageImpl<>(
+                        List.of(new ClienteView(1L, null, 0L), new ClienteView(2L, null, 4L)));
+        given(
+                        clienteService.findClienteViews(
+                                new FindClientesQuery(0, 10, "id", "asc", CountStrategy.EXACT),
+                                EnumSet.of(ClienteField.ID, ClienteField.VERSION)))
+                .willReturn(new PagedResult<>(page));
+
+        this.mockMvc
+                .perform(get("").param("fields", "id"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.data.size()", is(2)))
+                .andExpect(jsonPath("$.data[1].id", is(2)))
+                .andExpect(jsonPath("$.data[1].version", is(4)))
+                .andExpect(jsonPath("$.data[1].text").doesNotExist());
+    }
+
+    @Test
+    void shouldReturn400ForUnknownField() throws Exception {
+        this.mockMvc
+                .perform(get("").param("fields", "id,password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail", is("Unknown field: password")));
+    }
+
+    @Test
+    void shouldReturn400ForUnknownCountStrategy() throws Exception {
+        this.mockMvc
+                .perform(get("").param("count", "sometimes"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.title", is("Bad Request")));
+    }
+
+    @Test
+    void shouldFetchClientesAfterCursor() throws Exception {
+        CursorResult<Cliente> cursorResult =
+                new CursorResult<>(clienteList.subList(0, 2), 2, "next-token", true);
+        given(clienteService.findClientesAfter("", 2, "id", "asc")).willReturn(cursorResult);
+
+        this.mockMvc
+                .perform(get("").param("after", "").param("pageSize", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.size()", is(2)))
+                .andExpect(jsonPath("$.pageSize", is(2)))
+                .andExpect(jsonPath("$.nextCursor", is("next-token")))
+                .andExpect(jsonPath("$.hasNext", is(true)))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    void shouldFetchClienteViewsAfterCursor() throws Exception {
+        CursorResult<ClienteView> cursorResult =
+                new CursorResult<>(List.of(new ClienteView(1L, null, 0L)), 1, "next-token", true);
+        given(
+                        clienteService.findClienteViewsAfter(
+                                "",
+                                1,
+                                "id",
+                                "asc",
+                                EnumSet.of(ClienteField.ID, ClienteField.VERSION)))
+                .willReturn(cursorResult);
+
+        this.mockMvc
+                .perform(get("").param("after", "").param("fields", "id").param("pageSize", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.data[0].id", is(1)))
+                .andExpect(jsonPath("$.data[0].text").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor", is("next-token")));
+        verify(clienteService, never()).findClientesAfter(any(), anyInt(), any(), any());
+    }
+
+    @Test
+    void shouldSearchClientes() throws Exception {
+        CursorResult<Cliente> cursorResult =
+                new CursorResult<>(clienteList.subList(0, 1), 10, null, false);
+        given(clienteSearchService.searchClientes("text", null, 10)).willReturn(cursorResult);
+
+        this.mockMvc
+                .perform(get("/search").param("q", "text"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.size()", is(1)))
+                .andExpect(jsonPath("$.data[0].id", is(1)))
+                .andExpect(jsonPath("$.hasNext", is(false)));
+    }
+
+    @Test
+    void shouldReturn400WhenSearchingWithoutQuery() throws Exception {
+        this.mockMvc.perform(get("/search")).andExpect(status().isBadRequest());
     }
 
     @Test
@@ -84,6 +246,31 @@ class ClienteControllerTest {
                 .andExpect(jsonPath("$.text", is(cliente.getText())));
     }
 
+    @Test
+    void shouldReturn304WithoutLoadingWhenETagMatches() throws Exception {
+        given(clienteService.findClienteVersion(1L)).willReturn(Optional.of(2L));
+
+        this.mockMvc
+                .perform(get("/{id}", 1L).header(HttpHeaders.IF_NONE_MATCH, "\"1\", \"2\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                .andExpect(content().string(""));
+        verify(clienteService, never()).findClienteById(any());
+    }
+
+    @Test
+    void shouldReturnClienteWithETagWhenVersionChanged() throws Exception {
+        Cliente cliente = new Cliente(1L, "text 1", 3L);
+        given(clienteService.findClienteVersion(1L)).willReturn(Optional.of(3L));
+        given(clienteService.findClienteById(1L)).willReturn(Optional.of(cliente));
+
+        this.mockMvc
+                .perform(get("/{id}", 1L).header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(jsonPath("$.version", is(3)));
+    }
+
     @Test
     void shouldReturn404WhenFetchingNonExistingCliente() throws Exception {
         Long clienteId = 1L;
@@ -107,6 +294,88 @@ class ClienteControllerTest {
                 .andExpect(jsonPath("$.text", is(cliente.getText())));
     }
 
+    @Test
+    void shouldReturn400WhenTextTakesTooManyBytes() throws Exception {
+        // 1024 characters, but 3 bytes each in UTF-8
+        Cliente cliente = new Cliente(null, "€".repeat(1024));
+
+        this.mockMvc
+                .perform(
+                        post("").contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(cliente)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.violations", hasSize(1)))
+                .andExpect(jsonPath("$.violations[0].field", is("text")))
+                .andExpect(
+                        jsonPath(
+                                "$.violations[0].message",
+                                is("Text cannot take more than 2048 bytes")));
+        verify(clienteService, never()).saveCliente(any());
+    }
+
+    @Test
+    void shouldAcceptClienteAsynchronouslyWhenPreferred() throws Exception {
+        given(clienteWriteBehindQueue.isEnabled()).willReturn(true);
+        given(clienteWriteBehindQueue.enqueue("Queued cliente"))
+                .willReturn(new Cliente(51L, "Queued cliente"));
+
+        this.mockMvc
+                .perform(
+                        post("").header("Prefer", "wait=1, respond-async")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"text\":\"Queued cliente\"}"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/51"))
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(jsonPath("$.id", is(51)));
+        verify(clienteService, never()).saveCliente(any());
+    }
+
+    @Test
+    void shouldReturn503WithRetryAfterWhenQueueIsFull() throws Exception {
+        given(clienteWriteBehindQueue.isEnabled()).willReturn(true);
+        given(clienteWriteBehindQueue.enqueue(any()))
+                .willThrow(
+                        new ServiceUnavailableException(
+                                "Too many clientes waiting to be written",
+                                Duration.ofMillis(1500)));
+
+        this.mockMvc
+                .perform(
+                        post("").header("Prefer", "respond-async")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"text\":\"Queued cliente\"}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"));
+    }
+
+    @Test
+    void shouldImportUnderTheIdTheCallerChose() throws Exception {
+        UUID jobId = UUID.randomUUID();
+        given(clienteImportService.importClientes(eq(jobId), eq(DataFormat.NDJSON), any()))
+                .willReturn(
+                        new ImportJobStatus(
+                                jobId,
+                                DataFormat.NDJSON,
+                                ImportJobStatus.State.COMPLETED,
+                                1,
+                                1,
+                                0,
+                                Instant.now(),
+                                Instant.now(),
+                                List.of()));
+
+        this.mockMvc
+                .perform(
+                        post("/import")
+                                .header("Import-Id", jobId.toString())
+                                .contentType(DataFormat.NDJSON_VALUE)
+                                .content("{\"text\":\"Imported cliente\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/import/" + jobId))
+                .andExpect(jsonPath("$.jobId", is(jobId.toString())));
+    }
+
     @Test
     void shouldReturn400WhenCreateNewClienteWithoutText() throws Exception {
         Cliente cliente = new Cliente(null, null);
@@ -128,13 +397,44 @@ class ClienteControllerTest {
                 .andReturn();
     }
 
+    @Test
+    void shouldCreateClientesInBatch() throws Exception {
+        BatchResult batchResult =
+                new BatchResult(
+                        List.of(
+                                BatchItemResult.created(0, 1L),
+                                BatchItemResult.rejected(
+                                        1,
+                                        null,
+                                        List.of(
+                                                new BatchItemResult.Violation(
+                                                        "text", "Text cannot be empty")))));
+        given(clienteService.saveAll(anyList())).willReturn(batchResult);
+
+        this.mockMvc
+                .perform(
+                        post("/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(
+                                        objectMapper.writeValueAsString(
+                                                List.of(
+                                                        new Cliente(null, "some text"),
+                                                        new Cliente(null, "")))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted", is(1)))
+                .andExpect(jsonPath("$.rejected", is(1)))
+                .andExpect(jsonPath("$.items[0].id", is(1)))
+                .andExpect(jsonPath("$.items[0].status", is("CREATED")))
+                .andExpect(jsonPath("$.items[1].status", is("REJECTED")))
+                .andExpect(jsonPath("$.items[1].violations[0].field", is("text")));
+    }
+
     @Test
     void shouldUpdateCliente() throws Exception {
         Long clienteId = 1L;
         Cliente cliente = new Cliente(clienteId, "Updated text");
-        given(clienteService.findClienteById(clienteId)).willReturn(Optional.of(cliente));
-        given(clienteService.saveCliente(any(Cliente.class)))
-                .willAnswer((invocation) -> invocation.getArgument(0));
+        given(clienteService.updateCliente(eq(clienteId), any(Cliente.class), isNull()))
+                .willAnswer((invocation) -> Optional.of(invocation.getArgument(1)));
 
         this.mockMvc
                 .perform(
@@ -145,10 +445,85 @@ class ClienteControllerTest {
                 .andExpect(jsonPath("$.text", is(cliente.getText())));
     }
 
+    @Test
+    void shouldPassIfMatchVersionWhenUpdatingCliente() throws Exception {
+        Long clienteId = 1L;
+        Cliente cliente = new Cliente(clienteId, "Updated text");
+        given(clienteService.updateCliente(eq(clienteId), any(Cliente.class), eq(3L)))
+                .willReturn(Optional.of(new Cliente(clienteId, "Updated text", 4L)));
+
+        this.mockMvc
+                .perform(
+                        put("/{id}", clienteId)
+                                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(cliente)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    void shouldReturn412WhenIfMatchIsStale() throws Exception {
+        Long clienteId = 1L;
+        Cliente cliente = new Cliente(clienteId, "Updated text");
+        given(clienteService.updateCliente(eq(clienteId), any(Cliente.class), eq(3L)))
+                .willThrow(new PreconditionFailedException("Cliente 1 is no longer at version 3"));
+
+        this.mockMvc
+                .perform(
+                        put("/{id}", clienteId)
+                                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(cliente)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.title", is("Precondition Failed")));
+    }
+
+    @Test
+    void shouldReturn412WhenIfMatchIsNotAVersion() throws Exception {
+        Cliente cliente = new Cliente(1L, "Updated text");
+
+        this.mockMvc
+                .perform(
+                        put("/{id}", 1L)
+                                .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(cliente)))
+                .andExpect(status().isPreconditionFailed());
+        verify(clienteService, never()).updateCliente(any(), any(), any());
+    }
+
+    @Test
+    void shouldReturn400WhenUpdatingClienteWithEmptyText() throws Exception {
+        this.mockMvc
+                .perform(
+                        put("/{id}", 1L)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"text\":\"\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.violations[0].field", is("text")))
+                .andExpect(jsonPath("$.violations[0].message", is("Text cannot be empty")));
+        verify(clienteService, never()).updateCliente(any(), any(), any());
+    }
+
+    @Test
+    void shouldReturn400WhenUpdatingClienteWithoutText() throws Exception {
+        this.mockMvc
+                .perform(
+                        put("/{id}", 1L)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"text\":null}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.violations[0].field", is("text")))
+                .andExpect(jsonPath("$.violations[0].message", is("Text cannot be empty")));
+        verify(clienteService, never()).updateCliente(any(), any(), any());
+    }
+
     @Test
     void shouldReturn404WhenUpdatingNonExistingCliente() throws Exception {
         Long clienteId = 1L;
-        given(clienteService.findClienteById(clienteId)).willReturn(Optional.empty());
+        given(clienteService.updateCliente(eq(clienteId), any(Cliente.class), isNull()))
+                .willReturn(Optional.empty());
         Cliente cliente = new Cliente(clienteId, "Updated text");
 
         this.mockMvc
@@ -159,12 +534,38 @@ class ClienteControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void shouldPatchCliente() throws Exception {
+        given(clienteService.patchCliente(1L, new ClientePatch("Patched"), 2L))
+                .willReturn(Optional.of(new Cliente(1L, "Patched", 3L)));
+
+        this.mockMvc
+                .perform(
+                        patch("/{id}", 1L)
+                                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                                .contentType("application/merge-patch+json")
+                                .content("{\"text\":\"Patched\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(jsonPath("$.text", is("Patched")));
+    }
+
+    @Test
+    void shouldReturn400WhenPatchingWithEmptyText() throws Exception {
+        this.mockMvc
+                .perform(
+                        patch("/{id}", 1L)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"text\":\"\"}"))
+                .andExpect(status().isBadRequest());
+        verify(clienteService, never()).patchCliente(any(), any(), any());
+    }
+
     @Test
     void shouldDeleteCliente() throws Exception {
         Long clienteId = 1L;
         Cliente cliente = new Cliente(clienteId, "Some text");
-        given(clienteService.findClienteById(clienteId)).willReturn(Optional.of(cliente));
-        doNothing().when(clienteService).deleteClienteById(cliente.getId());
+        given(clienteService.deleteClienteById(clienteId)).willReturn(Optional.of(cliente));
 
         this.mockMvc
                 .perform(delete("/{id}", cliente.getId()))
@@ -175,7 +576,7 @@ class ClienteControllerTest {
     @Test
     void shouldReturn404WhenDeletingNonExistingCliente() throws Exception {
         Long clienteId = 1L;
-        given(clienteService.findClienteById(clienteId)).willReturn(Optional.empty());
+        given(clienteService.deleteClienteById(clienteId)).willReturn(Optional.empty());
 
         this.mockMvc.perform(delete("/{id}", clienteId)).andExpect(status().isNotFound());
     }
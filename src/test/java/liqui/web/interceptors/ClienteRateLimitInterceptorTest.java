@@ -0,0 +1,167 @@
+package liqui.web.interceptors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import liqui.config.ApplicationProperties;
+import liqui.exception.ErrorDetailProblemHandlingControllerAdvice;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+class ClienteRateLimitInterceptorTest {
+
+    private ApplicationProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ApplicationProperties();
+        properties.getRateLimit().setEnabled(true);
+        properties.getRateLimit().getDefaults().setBurst(2);
+        properties.getRateLimit().getDefaults().setRate(0.1);
+    }
+
+    @Test
+    void shouldRejectRequestsBeyondTheBucketOfTheClient() throws Exception {
+        // given
+        properties.getRateLimit().getApiKeys().put("other", limit(2));
+        MockMvc mockMvc = mockMvc();
+        mockMvc.perform(get("/ping")).andExpect(status().isOk());
+        mockMvc.perform(get("/ping")).andExpect(status().isOk());
+        // when, then
+        mockMvc.perform(get("/ping"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "10"))
+                .andExpect(jsonPath("$.title", is("Too Many Requests")));
+        mockMvc.perform(get("/ping").header("X-API-Key", "other")).andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldApplyTheLimitOfTheApiKey() throws Exception {
+        // given
+        properties.getRateLimit().getApiKeys().put("importer", limit(3));
+        MockMvc mockMvc = mockMvc();
+        // when, then
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/ping").header("X-API-Key", "importer"))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/ping").header("X-API-Key", "importer"))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void shouldCountUnknownApiKeysAgainstTheAddress() throws Exception {
+        // given
+        properties.getRateLimit().getApiKeys().put("importer", limit(3));
+        MockMvc mockMvc = mockMvc();
+        mockMvc.perform(get("/ping").header("X-API-Key", "random-1")).andExpect(status().isOk());
+        mockMvc.perform(get("/ping").header("X-API-Key", "random-2")).andExpect(status().isOk());
+        // when, then
+        mockMvc.perform(get("/ping").header("X-API-Key", "random-3"))
+                .andExpect(status().isTooManyRequests());
+        mockMvc.perform(get("/ping")).andExpect(status().isTooManyRequests());
+        mockMvc.perform(get("/ping").header("X-API-Key", "importer")).andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldRejectRequestsBeyondTheConcurrencyLimit() throws Exception {
+        // given
+        properties.getRateLimit().setEnabled(false);
+        properties.getConcurrencyLimit().setEnabled(true);
+        properties.getConcurrencyLimit().setInitialLimit(0);
+        // when, then
+        mockMvc()
+                .perform(get("/ping"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
+    @Test
+    void shouldShrinkTheLimitWhenLatencyGrows() {
+        // given
+        properties.getConcurrencyLimit().setInitialLimit(10);
+        AdaptiveConcurrencyLimit limit =
+                new AdaptiveConcurrencyLimit(properties.getConcurrencyLimit());
+        long now = 0;
+        for (int i = 0; i < 100; i++) {
+            now += sample(limit, 10, now);
+        }
+        int steady = limit.getLimit();
+        // when
+        for (int i = 0; i < 20; i++) {
+            now += sample(limit, 100, now);
+        }
+        // then
+        assertThat(limit.getLimit()).isLessThan(steady);
+        assertThat(limit.getInFlight()).isZero();
+    }
+
+    @Test
+    void shouldGrowTheLimitOnlyWhileItIsUsed() {
+        // given
+        properties.getConcurrencyLimit().setInitialLimit(4);
+        AdaptiveConcurrencyLimit limit =
+                new AdaptiveConcurrencyLimit(properties.getConcurrencyLimit());
+        // when one request at a time
+        for (int i = 0; i < 100; i++) {
+            sample(limit, 10, i);
+        }
+        // then
+        assertThat(limit.getLimit()).isEqualTo(4);
+        // when the limit is full
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < limit.getLimit(); j++) {
+                assertThat(limit.tryAcquire()).isTrue();
+            }
+            assertThat(limit.tryAcquire()).isFalse();
+            for (int j = limit.getInFlight(); j > 0; j--) {
+                limit.release(TimeUnit.MILLISECONDS.toNanos(10), i);
+            }
+        }
+        // then
+        assertThat(limit.getLimit()).isGreaterThan(4);
+    }
+
+    private static ApplicationProperties.RateLimit.Limit limit(int burst) {
+        ApplicationProperties.RateLimit.Limit limit = new ApplicationProperties.RateLimit.Limit();
+        limit.setBurst(burst);
+        limit.setRate(0.1);
+        return limit;
+    }
+
+    /** Runs one request of {@code millis} at {@code now}, returns its duration in nanos. */
+    private static long sample(AdaptiveConcurrencyLimit limit, long millis, long now) {
+        assertThat(limit.tryAcquire()).isTrue();
+        long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        limit.release(nanos, now + nanos);
+        return nanos;
+    }
+
+    private MockMvc mockMvc() {
+        return MockMvcBuilders.standaloneSetup(new PingController())
+                .setControllerAdvice(new ErrorDetailProblemHandlingControllerAdvice())
+                .addInterceptors(
+                        new ClienteRateLimitInterceptor(properties, new SimpleMeterRegistry()))
+                .build();
+    }
+
+    @RestController
+    static class PingController {
+
+        @GetMapping("/ping")
+        String ping() {
+            return "pong";
+        }
+    }
+}